@@ -20,8 +20,16 @@ public class QTeam extends EntityPathBase<Team> {
 
     public static final QTeam team = new QTeam("team");
 
+    public final NumberPath<Integer> ageMax = createNumber("ageMax", Integer.class);
+
+    public final NumberPath<Integer> ageMin = createNumber("ageMin", Integer.class);
+
+    public final NumberPath<Long> ageSum = createNumber("ageSum", Long.class);
+
     public final NumberPath<Long> id = createNumber("id", Long.class);
 
+    public final NumberPath<Integer> memberCount = createNumber("memberCount", Integer.class);
+
     public final ListPath<Member, QMember> members = this.<Member, QMember>createList("members", Member.class, QMember.class, PathInits.DIRECT2);
 
     public final StringPath name = createString("name");
@@ -2,12 +2,16 @@ package study.querydsl;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class QuerydslApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(QuerydslApplication.class, args);
+		SpringApplication application = new SpringApplication(QuerydslApplication.class);
+		// 기동 단계/빈 생성 시간을 기록 (StartupReport, /actuator/startup)
+		application.setApplicationStartup(new BufferingApplicationStartup(10000));
+		application.run(args);
 	}
 
 }
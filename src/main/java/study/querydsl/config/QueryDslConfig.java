@@ -1,19 +1,249 @@
 package study.querydsl.config;
 
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.entity.TeamStatsListener;
+import study.querydsl.repository.MemberChangeLog;
+import study.querydsl.support.DataVersion;
+import study.querydsl.support.QueryDeadline;
+import study.querydsl.support.RecordingJPAQuery;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static study.querydsl.entity.QMember.member;
 
 @Configuration
 public class QueryDslConfig {
     @PersistenceContext
     private EntityManager entityManager;
 
+    /**
+     * bulk update/delete 한번에 변경 로그에 회원별로 기록하는 최대 회원 수. 넘으면 전체 resync 로 기록한다.
+     */
+    @Value("${member.changes.bulk-capture-limit:10000}")
+    private int bulkCaptureLimit;
+
+    /**
+     * select/selectFrom/from 으로 만드는 모든 쿼리에 요청 데드라인을 타임아웃 힌트로 걸고, 실행하면 RepositoryQueryEvent 를 남긴다.
+     * bulk update/delete 는 엔티티 리스너를 거치지 않으니 실행 후 직접 DataVersion 과 변경 로그에 기록하고,
+     * 회원을 지우거나 팀/나이를 바꿨으면 팀 통계(Team.memberCount/ageSum/ageMin/ageMax)를 다시 센다.
+     */
     @Bean
-    public JPAQueryFactory jpaQueryFactory() {
-        return new JPAQueryFactory(entityManager);
+    public JPAQueryFactory jpaQueryFactory(DataVersion dataVersion, @Lazy MemberChangeLog memberChangeLog) {
+        return new JPAQueryFactory(entityManager) {
+            @Override
+            public JPAQuery<?> query() {
+                JPAQuery<?> query = new RecordingJPAQuery<Void>(entityManager);
+                QueryDeadline.applyTo(query);
+                return query;
+            }
+
+            @Override
+            public JPAUpdateClause update(EntityPath<?> path) {
+                List<Predicate> predicates = new ArrayList<>();
+                List<Path<?>> setPaths = new ArrayList<>();
+                // member.team 에 넣는 값 (Team, 식 또는 null)
+                List<Object> teamValues = new ArrayList<>();
+                return new JPAUpdateClause(entityManager, path) {
+                    @Override
+                    public JPAUpdateClause where(Predicate... o) {
+                        Collections.addAll(predicates, o);
+                        return super.where(o);
+                    }
+
+                    @Override
+                    public <T> JPAUpdateClause set(Path<T> setPath, T value) {
+                        setPaths.add(setPath);
+                        addTeamValue(setPath, value);
+                        return super.set(setPath, value);
+                    }
+
+                    @Override
+                    public <T> JPAUpdateClause set(Path<T> setPath, Expression<? extends T> expression) {
+                        setPaths.add(setPath);
+                        addTeamValue(setPath, expression);
+                        return super.set(setPath, expression);
+                    }
+
+                    @Override
+                    public <T> JPAUpdateClause setNull(Path<T> setPath) {
+                        setPaths.add(setPath);
+                        return super.setNull(setPath);
+                    }
+
+                    @Override
+                    public JPAUpdateClause set(List<? extends Path<?>> paths, List<?> values) {
+                        setPaths.addAll(paths);
+                        for (int i = 0; i < paths.size(); i++) {
+                            addTeamValue(paths.get(i), values.get(i));
+                        }
+                        return super.set(paths, values);
+                    }
+
+                    private void addTeamValue(Path<?> setPath, Object value) {
+                        if (isMemberPath(setPath, "team")) {
+                            teamValues.add(value);
+                        }
+                    }
+
+                    @Override
+                    public long execute() {
+                        List<Long> memberIds = targetMemberIds(path, predicates);
+                        boolean statsChanged = setPaths.stream()
+                                .anyMatch(setPath -> isMemberPath(setPath, "team") || isMemberPath(setPath, "age"));
+                        // 옮기기 전 팀은 실행 전에 조회한다.
+                        List<Long> teamIds = statsChanged ? targetTeamIds(path, predicates) : null;
+                        long count = super.execute();
+                        if (count > 0 && teamIds != null) {
+                            recountTeams(teamIds, teamValues, memberIds);
+                        }
+                        bulkExecuted(dataVersion, memberChangeLog, memberIds, count, false);
+                        return count;
+                    }
+                };
+            }
+
+            @Override
+            public JPADeleteClause delete(EntityPath<?> path) {
+                List<Predicate> predicates = new ArrayList<>();
+                return new JPADeleteClause(entityManager, path) {
+                    @Override
+                    public JPADeleteClause where(Predicate... o) {
+                        Collections.addAll(predicates, o);
+                        return super.where(o);
+                    }
+
+                    @Override
+                    public long execute() {
+                        List<Long> memberIds = targetMemberIds(path, predicates);
+                        List<Long> teamIds = targetTeamIds(path, predicates);
+                        long count = super.execute();
+                        if (count > 0 && teamIds != null) {
+                            TeamStatsListener.recount(entityManager, teamIds);
+                        }
+                        bulkExecuted(dataVersion, memberChangeLog, memberIds, count, true);
+                        return count;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * bulk 연산 대상 회원 id. 실행 전에 같은 조건으로 조회한다. Member 가 아니면 null
+     */
+    private List<Long> targetMemberIds(EntityPath<?> path, List<Predicate> predicates) {
+        if (!(path instanceof QMember)) {
+            return null;
+        }
+        return new JPAQuery<>(entityManager)
+                .select(((QMember) path).id)
+                .from(path)
+                .where(predicates.toArray(new Predicate[0]))
+                .limit(bulkCaptureLimit + 1)
+                .fetch();
+    }
+
+    /**
+     * bulk 연산 대상 회원의 팀 id. 실행 후 팀 통계를 다시 센다. Member 가 아니면 null
+     */
+    private List<Long> targetTeamIds(EntityPath<?> path, List<Predicate> predicates) {
+        if (!(path instanceof QMember)) {
+            return null;
+        }
+        QMember target = (QMember) path;
+        return new JPAQuery<>(entityManager)
+                .select(target.team.id)
+                .distinct()
+                .from(target)
+                .where(target.team.isNotNull())
+                .where(predicates.toArray(new Predicate[0]))
+                .fetch();
+    }
+
+    /**
+     * 원래 팀과 옮겨간 팀의 통계만 다시 센다.
+     * 옮겨간 팀은 set 에 넣은 Team 으로 알 수 있고, 식이라서 알 수 없으면 대상 회원의 지금 팀을 조회한다.
+     * 대상 회원이 너무 많아서 id 를 다 모으지 못했으면 전체를 다시 센다.
+     */
+    private void recountTeams(List<Long> oldTeamIds, List<Object> teamValues, List<Long> memberIds) {
+        Set<Long> teamIds = new TreeSet<>(oldTeamIds);
+        for (Object value : teamValues) {
+            if (value instanceof Constant) {
+                value = ((Constant<?>) value).getConstant();
+            }
+            if (value instanceof Team) {
+                teamIds.add(((Team) value).getId());
+            } else if (value != null) {
+                if (memberIds.size() > bulkCaptureLimit) {
+                    TeamStatsListener.recountAll(entityManager);
+                    return;
+                }
+                teamIds.addAll(currentTeamIds(memberIds));
+            }
+        }
+        TeamStatsListener.recount(entityManager, teamIds);
+    }
+
+    private List<Long> currentTeamIds(List<Long> memberIds) {
+        if (memberIds.isEmpty()) {
+            return List.of();
+        }
+        return new JPAQuery<>(entityManager)
+                .select(member.team.id)
+                .distinct()
+                .from(member)
+                .where(member.id.in(memberIds), member.team.isNotNull())
+                .fetch();
+    }
+
+    private static boolean isMemberPath(Path<?> path, String property) {
+        PathMetadata metadata = path.getMetadata();
+        return metadata.getParent() != null
+                && metadata.getParent().getType() == Member.class
+                && property.equals(metadata.getName());
+    }
+
+    private void bulkExecuted(DataVersion dataVersion, MemberChangeLog memberChangeLog,
+                              List<Long> memberIds, long count, boolean deleted) {
+        if (count == 0) {
+            return;
+        }
+        dataVersion.bump();
+        if (memberIds == null) {
+            return;
+        }
+        if (memberIds.size() > bulkCaptureLimit) {
+            memberChangeLog.resyncAll();
+            return;
+        }
+        for (Long memberId : memberIds) {
+            if (deleted) {
+                memberChangeLog.removed(memberId);
+            } else {
+                memberChangeLog.upserted(memberId);
+            }
+        }
     }
 }
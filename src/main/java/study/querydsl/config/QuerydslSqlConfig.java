@@ -0,0 +1,52 @@
+package study.querydsl.config;
+
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.SQLTemplates;
+import com.querydsl.sql.SQLTemplatesRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.support.RecordingSQLQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * querydsl-sql 설정 (member.repository.backend=sql 일 때만)
+ * SQL 방언은 DB 메타데이터로 고르고, 스프링 트랜잭션이 있으면 JPA 와 같은 커넥션을 쓴다.
+ * JPA 쿼리처럼 실행하면 RepositoryQueryEvent 를 남긴다.
+ *
+ * JPQL 은 실행 전에 바뀐 엔티티를 자동 flush 하지만 JDBC 로 바로 실행하는 querydsl-sql 은 그렇지 않다.
+ * 같은 트랜잭션에서 바꾼 엔티티가 JPA 백엔드와 똑같이 보이도록, 쓰기 트랜잭션 안에서는 쿼리를 만들 때 flush 한다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "member.repository.backend", havingValue = "sql")
+public class QuerydslSqlConfig {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Bean
+    public SQLQueryFactory sqlQueryFactory(DataSource dataSource) throws SQLException {
+        SQLTemplates templates;
+        try (Connection connection = dataSource.getConnection()) {
+            templates = new SQLTemplatesRegistry().getTemplates(connection.getMetaData());
+        }
+        return new SQLQueryFactory(new com.querydsl.sql.Configuration(templates), new TransactionAwareDataSourceProxy(dataSource)) {
+            @Override
+            public SQLQuery<?> query() {
+                if (TransactionSynchronizationManager.isActualTransactionActive()
+                        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                    entityManager.flush();
+                }
+                return new RecordingSQLQuery<Void>(connection, configuration);
+            }
+        };
+    }
+}
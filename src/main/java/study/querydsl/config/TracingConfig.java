@@ -0,0 +1,63 @@
+package study.querydsl.config;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.instrumentation.jdbc.datasource.OpenTelemetryDataSource;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * OpenTelemetry 설정
+ * span 은 기본적으로 내보내지 않는다. member.tracing.logging-exporter=true 면 로그로 출력하고,
+ * 다른 exporter 를 쓰려면 SpanExporter 빈(여러 개면 @Primary)을 등록하면 된다.
+ * 요청 스레드가 export 를 기다리지 않도록 BatchSpanProcessor 로 모아서 내보낸다.
+ * DataSource 를 감싸서 JDBC statement 마다 span 이 생긴다.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "member.tracing.logging-exporter", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+
+    /**
+     * 종료 시 close 로 남은 span 을 내보낸다.
+     */
+    @Bean
+    public OpenTelemetrySdk openTelemetry(ObjectProvider<SpanExporter> spanExporter) {
+        SdkTracerProviderBuilder tracerProvider = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(Resource.create(
+                        Attributes.builder().put("service.name", "querydsl").build())));
+        spanExporter.ifAvailable(exporter -> tracerProvider.addSpanProcessor(BatchSpanProcessor.builder(exporter).build()));
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider.build())
+                .build();
+    }
+
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor(ObjectProvider<OpenTelemetry> openTelemetry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof OpenTelemetryDataSource)) {
+                    return new OpenTelemetryDataSource((DataSource) bean, openTelemetry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package study.querydsl.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.querydsl.support.ConcurrencyLimitInterceptor;
+import study.querydsl.support.QueryDeadlineInterceptor;
+import study.querydsl.support.TracingInterceptor;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final TracingInterceptor tracingInterceptor;
+    private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+    private final QueryDeadlineInterceptor queryDeadlineInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 거절된 요청도 trace 에 남도록 가장 먼저 등록한다.
+        registry.addInterceptor(tracingInterceptor)
+                .addPathPatterns("/members", "/members/page");
+        // 한도를 넘는 요청은 데드라인을 걸기 전에 먼저 거절한다.
+        registry.addInterceptor(concurrencyLimitInterceptor)
+                .addPathPatterns("/members", "/members/page");
+        registry.addInterceptor(queryDeadlineInterceptor)
+                .addPathPatterns("/members/**", "/teams/**");
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import study.querydsl.support.DeadlineExceededException;
+import study.querydsl.support.TooManyConditionsException;
+import study.querydsl.support.UnsupportedFieldException;
+import study.querydsl.support.UnsupportedSortException;
+
+import java.util.Map;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    private final Counter deadlineExceededCounter;
+
+    public ApiExceptionHandler(MeterRegistry meterRegistry) {
+        this.deadlineExceededCounter = meterRegistry.counter("query.deadline.exceeded");
+    }
+
+    /**
+     * 데드라인 초과로 실행하지 않았거나 JDBC statement 가 취소된 쿼리는 504 로 구분해서 응답한다.
+     */
+    @ExceptionHandler({
+            DeadlineExceededException.class,
+            org.springframework.dao.QueryTimeoutException.class,
+            javax.persistence.QueryTimeoutException.class})
+    public ResponseEntity<Map<String, String>> deadlineExceeded(RuntimeException e) {
+        deadlineExceededCounter.increment();
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(Map.of("error", "QUERY_DEADLINE_EXCEEDED", "message", String.valueOf(e.getMessage())));
+    }
+
+    /**
+     * 조회할 수 없는 fields 는 400 으로 응답한다.
+     */
+    @ExceptionHandler(UnsupportedFieldException.class)
+    public ResponseEntity<Map<String, String>> unsupportedField(UnsupportedFieldException e) {
+        return ResponseEntity.badRequest()
+                .body(Map.of("error", "UNSUPPORTED_FIELD", "message", String.valueOf(e.getMessage())));
+    }
+
+    /**
+     * 인덱스로 정렬할 수 없는 sort 는 400 으로 응답한다.
+     */
+    @ExceptionHandler(UnsupportedSortException.class)
+    public ResponseEntity<Map<String, String>> unsupportedSort(UnsupportedSortException e) {
+        return ResponseEntity.badRequest()
+                .body(Map.of("error", "UNSUPPORTED_SORT", "message", String.valueOf(e.getMessage())));
+    }
+
+    /**
+     * 검색조건이 너무 많은 batch 검색은 400 으로 응답한다.
+     */
+    @ExceptionHandler(TooManyConditionsException.class)
+    public ResponseEntity<Map<String, String>> tooManyConditions(TooManyConditionsException e) {
+        return ResponseEntity.badRequest()
+                .body(Map.of("error", "TOO_MANY_CONDITIONS", "message", String.valueOf(e.getMessage())));
+    }
+}
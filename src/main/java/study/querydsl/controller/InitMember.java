@@ -1,7 +1,12 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
@@ -10,6 +15,7 @@ import study.querydsl.entity.Team;
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Profile("local")
 @Component
@@ -18,9 +24,27 @@ public class InitMember {
 
     private final InitMemberService initMemberService;
 
+    /**
+     * true 면 샘플 데이터 생성을 트래픽을 받기 시작한 뒤(ReadinessState.ACCEPTING_TRAFFIC)로 미루고 별도 스레드에서 실행한다.
+     * ApplicationReadyEvent 리스너에서 바로 실행하면 readiness 가 그만큼 늦어진다.
+     */
+    @Value("${member.startup.defer-init-member:false}")
+    private boolean deferInit;
+
+    private final AtomicBoolean deferredStarted = new AtomicBoolean();
+
     @PostConstruct
     public void init() {
-        initMemberService.init();
+        if (!deferInit) {
+            initMemberService.init();
+        }
+    }
+
+    @EventListener
+    public void initAfterReady(AvailabilityChangeEvent<ReadinessState> event) {
+        if (deferInit && event.getState() == ReadinessState.ACCEPTING_TRAFFIC && deferredStarted.compareAndSet(false, true)) {
+            new CustomizableThreadFactory("init-member-").newThread(initMemberService::init).start();
+        }
     }
 
     @Component
@@ -1,31 +1,220 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import study.querydsl.dto.IngestResultDto;
+import study.querydsl.dto.MemberChangesDto;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberAgeWriteBehind;
+import study.querydsl.repository.MemberChangeLog;
+import study.querydsl.repository.MemberIngestor;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.support.DataVersion;
+import study.querydsl.support.DbBulkhead;
+import study.querydsl.support.QueryTimeout;
+import study.querydsl.support.TooManyConditionsException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    public static final String TRUNCATED_HEADER = "X-Result-Truncated";
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final DbBulkhead dbBulkhead;
+    private final DataVersion dataVersion;
+    private final MemberChangeLog memberChangeLog;
+    private final MemberAgeWriteBehind memberAgeWriteBehind;
+    private final MemberIngestor memberIngestor;
+
+    /**
+     * 페이징 없는 검색의 최대 응답 row 수
+     */
+    @Value("${member.search.max-rows:1000}")
+    private int maxRows;
+
+    /**
+     * /members/batch-search 한 요청의 최대 검색조건 수
+     */
+    @Value("${member.search.batch-max-conditions:50}")
+    private int batchMaxConditions;
 
+    /**
+     * fields 파라미터가 있으면 해당 컬럼만 조회한다. ex) /members?fields=username,age
+     * 페이징이 없으니 member_id 순으로 최대 maxRows 개까지만 응답하고, 잘린 경우 X-Result-Truncated 헤더와
+     * 그 다음 페이지(/members/page?page=1&size=maxRows)로 가는 Link 헤더를 준다.
+     * If-None-Match 가 현재 ETag 와 같으면 쿼리 없이 304 로 응답한다.
+     */
     @GetMapping("/members")
-    public List<MemberTeamDto> searchMember(MemberSearchCondition condition) {
-        return memberJpaRepository.search(condition);
+    public ResponseEntity<List<?>> searchMember(MemberSearchCondition condition,
+                                                @RequestParam(required = false) List<String> fields,
+                                                WebRequest webRequest) {
+        if (webRequest.checkNotModified(etag(condition, fields, "rows=" + maxRows))) {
+            return null;
+        }
+        // 잘렸는지 알 수 있게 한 건 더 조회한다.
+        List<?> result = fields != null && !fields.isEmpty()
+                ? memberRepository.searchFields(condition, fields, maxRows + 1)
+                : memberJpaRepository.search(condition, maxRows + 1);
+        return capped(result, pagedLink());
     }
 
+    @QueryTimeout(millis = 5000)
     @GetMapping("/members/page")
-    public Page<MemberTeamDto> searchMemberPage(MemberSearchCondition condition, Pageable pageable){
+    public Page<?> searchMemberPage(MemberSearchCondition condition, Pageable pageable,
+                                    @RequestParam(required = false) List<String> fields,
+                                    WebRequest webRequest){
+        if (webRequest.checkNotModified(etag(condition, fields, pageable.toString()))) {
+            return null;
+        }
+        if (fields != null && !fields.isEmpty()) {
+            return memberRepository.searchPageFields(condition, fields, pageable);
+        }
         return memberRepository.searchPageComplex(condition, pageable);
     }
+
+    /**
+     * 비동기 검색
+     * DB 작업은 bulkhead 스레드풀에서 실행하고, 요청 스레드는 바로 반환된다.
+     * 대기열이 가득 차면 503 으로 응답한다.
+     */
+    @GetMapping("/members/async")
+    public CompletableFuture<ResponseEntity<List<?>>> searchMemberAsync(MemberSearchCondition condition) {
+        // 요청 정보는 bulkhead 스레드에서 꺼낼 수 없으니 미리 만들어둔다.
+        String pagedLink = pagedLink();
+        return dbBulkhead.submit(() -> capped(memberJpaRepository.search(condition, maxRows + 1), pagedLink));
+    }
+
+    @GetMapping("/members/page/async")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberPageAsync(MemberSearchCondition condition, Pageable pageable) {
+        return dbBulkhead.submit(() -> memberRepository.searchPageComplex(condition, pageable));
+    }
+
+    /**
+     * since 이후 회원 변경분(upsert, tombstone)
+     * 처음에는 since=0 으로 호출하면 resync 가 온다. 그러면 next 를 기억해두고 /members/page?sort=memberId 로
+     * 마지막 페이지까지 전체를 받은 뒤 next 부터 이어간다. (/members 는 max-rows 에서 잘리니 쓰지 않는다)
+     * 전체를 받는 사이의 변경은 next 이후 변경으로 다시 온다.
+     */
+    @GetMapping("/members/changes")
+    public MemberChangesDto memberChanges(@RequestParam long since,
+                                          @RequestParam(defaultValue = "100") int limit) {
+        return memberChangeLog.changesSince(since, Math.max(1, Math.min(limit, maxRows)));
+    }
+
+    /**
+     * 나이 증감은 바로 update 하지 않고 모아서 반영한다. (write-behind)
+     */
+    @PostMapping("/members/{memberId}/age/increment")
+    public ResponseEntity<Void> incrementAge(@PathVariable Long memberId,
+                                             @RequestParam(defaultValue = "1") int delta) {
+        memberAgeWriteBehind.add(memberId, delta);
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * NDJSON 본문을 스트리밍으로 읽어 회원을 등록한다. chunk 별 성공/실패 수를 응답한다.
+     * ex) curl -H 'Content-Type: application/x-ndjson' --data-binary @members.ndjson /members/ingest
+     */
+    @PostMapping(value = "/members/ingest", consumes = "application/x-ndjson")
+    public IngestResultDto ingestMembers(InputStream body) throws IOException {
+        return memberIngestor.ingest(body);
+    }
+
+    @GetMapping("/members/batch")
+    public List<MemberTeamDto> searchMemberBatch(@RequestParam List<Long> ids) {
+        return memberJpaRepository.findAllTeamDtoByIds(ids);
+    }
+
+    /**
+     * 여러 검색조건을 한번에 조회한다. 조건은 최대 batchMaxConditions 개까지 받는다.
+     * 조건 전체를 합쳐 member_id 순으로 maxRows 개 row 까지만 응답하고, 잘린 경우 X-Result-Truncated 헤더를 준다.
+     * 잘렸으면 각 조건을 /members/page 로 나눠 받는다.
+     */
+    @QueryTimeout(millis = 10000)
+    @PostMapping("/members/batch-search")
+    public ResponseEntity<List<List<MemberTeamDto>>> batchSearchMember(@RequestBody List<MemberSearchCondition> conditions) {
+        if (conditions.size() > batchMaxConditions) {
+            throw new TooManyConditionsException(
+                    "검색조건은 최대 " + batchMaxConditions + " 개까지 가능합니다. conditions = " + conditions.size());
+        }
+        // 잘렸는지 알 수 있게 한 row 더 조회한다. 더 조회된 row 는 member_id 가 가장 크다.
+        List<List<MemberTeamDto>> results = memberRepository.searchBatch(conditions, maxRows + 1);
+        Set<Long> memberIds = new HashSet<>();
+        Long lastMemberId = null;
+        for (List<MemberTeamDto> result : results) {
+            for (MemberTeamDto dto : result) {
+                memberIds.add(dto.getMemberId());
+                if (lastMemberId == null || dto.getMemberId() > lastMemberId) {
+                    lastMemberId = dto.getMemberId();
+                }
+            }
+        }
+        boolean truncated = memberIds.size() > maxRows;
+        if (truncated) {
+            Long overflowId = lastMemberId;
+            results.forEach(result -> result.removeIf(dto -> dto.getMemberId().equals(overflowId)));
+        }
+        return ResponseEntity.ok()
+                .header(TRUNCATED_HEADER, String.valueOf(truncated))
+                .body(results);
+    }
+
+    private ResponseEntity<List<?>> capped(List<?> result, String pagedLink) {
+        if (result.size() <= maxRows) {
+            return ResponseEntity.ok()
+                    .header(TRUNCATED_HEADER, "false")
+                    .body(result);
+        }
+        return ResponseEntity.ok()
+                .header(TRUNCATED_HEADER, "true")
+                .header(HttpHeaders.LINK, "<" + pagedLink + ">; rel=\"next\"")
+                .body(result.subList(0, maxRows));
+    }
+
+    /**
+     * 데이터 버전 + 검색조건 + 컬럼 + 페이지로 만든 ETag
+     * 쿼리 전에 버전을 읽으므로, 그 사이 커밋된 변경이 응답에 섞여도 다음 요청에서 버전이 달라 다시 조회된다.
+     */
+    private String etag(MemberSearchCondition condition, List<String> fields, String page) {
+        String key = condition.cacheKey() + "|" + fields + "|" + page;
+        return "\"" + dataVersion.current() + "-"
+                + DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * 응답한 maxRows 개 다음부터 이어지는 페이지. /members 는 member_id 순이라 /members/page 의 기본 정렬과 같다.
+     */
+    private String pagedLink() {
+        return ServletUriComponentsBuilder.fromCurrentRequest()
+                .replacePath("/members/page")
+                .replaceQueryParam("page", 1)
+                .replaceQueryParam("size", maxRows)
+                .build()
+                .toUriString();
+    }
 }
@@ -0,0 +1,31 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.repository.TeamStatsRegistry;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamStatsRegistry teamStatsRegistry;
+
+    @GetMapping("/teams/stats")
+    public List<TeamStatsDto> teamStats() {
+        return teamStatsRegistry.findAll();
+    }
+
+    /**
+     * 팀 통계를 member 테이블에서 전체 다시 계산 (어긋났다고 의심될 때)
+     */
+    @PostMapping("/teams/stats/rebuild")
+    public List<TeamStatsDto> rebuildTeamStats() {
+        teamStatsRegistry.rebuild();
+        return teamStatsRegistry.findAll();
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class IngestChunkDto {
+
+    private int chunk;
+    // 요청 본문의 줄 번호 (1부터)
+    private long firstLine;
+    private long lastLine;
+    private int succeeded;
+    private int failed;
+    // 실패 사유. chunk 가 롤백됐으면 롤백 원인, 아니면 첫번째 잘못된 줄
+    private String error;
+
+    public IngestChunkDto(int chunk, long firstLine, long lastLine, int succeeded, int failed, String error) {
+        this.chunk = chunk;
+        this.firstLine = firstLine;
+        this.lastLine = lastLine;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.error = error;
+    }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class IngestResultDto {
+
+    private long succeeded;
+    private long failed;
+    private List<IngestChunkDto> chunks;
+
+    public IngestResultDto(List<IngestChunkDto> chunks) {
+        this.chunks = chunks;
+        for (IngestChunkDto chunk : chunks) {
+            succeeded += chunk.getSucceeded();
+            failed += chunk.getFailed();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class MemberChangeDto {
+
+    private long version;
+    private Long memberId;
+    private boolean deleted;
+    // 삭제(tombstone)면 null
+    private MemberTeamDto member;
+
+    public MemberChangeDto(long version, Long memberId, boolean deleted, MemberTeamDto member) {
+        this.version = version;
+        this.memberId = memberId;
+        this.deleted = deleted;
+        this.member = member;
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MemberChangesDto {
+
+    // 다음 요청의 since
+    private long next;
+    // true 면 since 이후 변경 일부가 압축되어 없으니 전체를 다시 받고 next 부터 이어간다.
+    // /members 는 max-rows 까지만 주므로 /members/page?sort=memberId 를 마지막 페이지까지 받는다.
+    private boolean resync;
+    // limit 때문에 남은 변경이 더 있는지
+    private boolean hasMore;
+    private List<MemberChangeDto> changes;
+
+    public MemberChangesDto(long next, boolean resync, boolean hasMore, List<MemberChangeDto> changes) {
+        this.next = next;
+        this.resync = resync;
+        this.hasMore = hasMore;
+        this.changes = changes;
+    }
+}
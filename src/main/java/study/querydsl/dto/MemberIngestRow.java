@@ -0,0 +1,16 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * /members/ingest 의 NDJSON 한 줄. ex) {"username":"member1","age":10,"teamName":"teamA"}
+ */
+@Data
+@NoArgsConstructor
+public class MemberIngestRow {
+
+    private String username;
+    private int age;
+    private String teamName;
+}
@@ -2,6 +2,10 @@ package study.querydsl.dto;
 
 import lombok.Data;
 
+import java.util.StringJoiner;
+
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 public class MemberSearchCondition {
     //회원명, 팀명, 나이(ageGoe, ageLoe)
@@ -10,4 +14,45 @@ public class MemberSearchCondition {
     private Integer ageGoe;
     private Integer ageLoe;
 
+    /**
+     * 값이 있는 검색조건 이름 (쿼리 모양). ex) "teamName,ageGoe", 조건이 없으면 "all"
+     * 값이 달라도 모양이 같으면 같은 JPQL 이 만들어진다.
+     */
+    public String shape() {
+        StringJoiner shape = new StringJoiner(",");
+        if (hasText(username)) {
+            shape.add("username");
+        }
+        if (hasText(teamName)) {
+            shape.add("teamName");
+        }
+        if (ageGoe != null) {
+            shape.add("ageGoe");
+        }
+        if (ageLoe != null) {
+            shape.add("ageLoe");
+        }
+        return shape.length() == 0 ? "all" : shape.toString();
+    }
+
+    /**
+     * 검색 결과를 구분하는 키. ETag 계산에 쓴다.
+     * 빈 문자열은 조건이 없는 것과 같으므로(hasText) 키에서도 뺀다.
+     */
+    public String cacheKey() {
+        StringJoiner key = new StringJoiner("&");
+        if (hasText(username)) {
+            key.add("username=" + username);
+        }
+        if (hasText(teamName)) {
+            key.add("teamName=" + teamName);
+        }
+        if (ageGoe != null) {
+            key.add("ageGoe=" + ageGoe);
+        }
+        if (ageLoe != null) {
+            key.add("ageLoe=" + ageLoe);
+        }
+        return key.toString();
+    }
 }
@@ -0,0 +1,25 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class TeamStatsDto {
+
+    private Long teamId;
+    private long memberCount;
+    private long ageSum;
+    private int ageMin;
+    private int ageMax;
+
+    public TeamStatsDto(Long teamId, long memberCount, long ageSum, int ageMin, int ageMax) {
+        this.teamId = teamId;
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.ageMin = ageMin;
+        this.ageMax = ageMax;
+    }
+
+    public double getAgeAvg() {
+        return memberCount == 0 ? 0 : (double) ageSum / memberCount;
+    }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 데이터 버전 한 row (DataVersion)
+ * 여러 노드가 같은 버전을 보도록 메모리가 아니라 DB 에 둔다.
+ * min_since 는 변경 로그(MemberChangeLog)의 resync 기준이다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(name = "data_version")
+public class DataVersionCounter {
+
+    @Id
+    private Long id;
+    private long version;
+
+    /**
+     * 이보다 작은 since 는 압축(tombstone 정리)이나 bulk 연산으로 빠진 변경이 있을 수 있다.
+     */
+    @Column(name = "min_since")
+    private long minSince;
+
+    public DataVersionCounter(Long id, long version) {
+        this.id = id;
+        this.version = version;
+        this.minSince = version;
+    }
+}
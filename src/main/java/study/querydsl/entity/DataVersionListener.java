@@ -0,0 +1,27 @@
+package study.querydsl.entity;
+
+import org.springframework.context.annotation.Lazy;
+import study.querydsl.support.DataVersion;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Member/Team 변경 시 DataVersion 을 올리는 엔티티 리스너
+ */
+public class DataVersionListener {
+
+    private final DataVersion dataVersion;
+
+    public DataVersionListener(@Lazy DataVersion dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(Object entity) {
+        dataVersion.bump();
+    }
+}
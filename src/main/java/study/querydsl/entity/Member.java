@@ -5,29 +5,58 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import java.util.Locale;
 
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
+@EntityListeners({MemberEntityListener.class, DataVersionListener.class})
+@Table(indexes = {
+        @Index(name = "idx_member_username_lower", columnList = "username_lower"),
+        // 검색 정렬(MemberSort)용. member_id 까지 포함해서 같은 값끼리도 인덱스 순서로 읽는다.
+        @Index(name = "idx_member_username", columnList = "username, member_id"),
+        @Index(name = "idx_member_age", columnList = "age, member_id"),
+        // 팀 통계의 min/max 를 다시 구할 때 팀 안에서 나이 순으로 읽는다. (TeamStatsListener)
+        @Index(name = "idx_member_team_age", columnList = "team_id, age")})
 public class Member {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "member_seq")
+    @GenericGenerator(name = "member_seq", strategy = "study.querydsl.entity.PooledSequenceGenerator", parameters = {
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_seq"),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")})
     @Column(name = "member_id")
     private Long id;
     private String username;
     private int age;
 
+    /**
+     * 대소문자 구분 없는 조회용 컬럼
+     * lower(username) 으로 조회하면 인덱스를 탈 수 없으니 소문자로 정규화한 값을 따로 저장한다.
+     * 엔티티 콜백으로만 동기화되므로 bulk 연산으로 username 을 바꿀 때는 함께 set 해야한다.
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "username_lower")
+    private String usernameLower;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
@@ -49,8 +78,28 @@ public class Member {
         }
     }
 
-    private void changeTeam(Team team) {
+    /**
+     * 팀 이동 (null 이면 팀에서 빠진다)
+     * team.getMembers().add() 를 직접 하면 회원이 많은 팀의 members 컬렉션을 통째로 로딩할 수 있으니
+     * Team 의 addMember/removeMember 로 컬렉션이 이미 로딩된 경우에만 맞춘다. 회원 수와 나이 통계는 TeamStatsListener 가 갱신한다.
+     */
+    public void changeTeam(Team team) {
+        if (this.team != null) {
+            this.team.removeMember(this);
+        }
         this.team = team;
-        team.getMembers().add(this);
+        if (team != null) {
+            team.addMember(this);
+        }
+    }
+
+    public static String normalizeUsername(String username) {
+        return username != null ? username.toLowerCase(Locale.ROOT) : null;
+    }
+
+    @PrePersist
+    @PreUpdate
+    private void syncUsernameLower() {
+        this.usernameLower = normalizeUsername(username);
     }
 }
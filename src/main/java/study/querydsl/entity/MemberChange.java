@@ -0,0 +1,32 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * 회원 변경 로그 (MemberChangeLog)
+ * 회원마다 마지막 변경 하나만 남긴다. version 은 변경한 트랜잭션의 DataVersion 이다.
+ * 쓰기는 MemberChangeLog 가 커밋 직전에 JDBC 로 하고, 엔티티는 조회에만 쓴다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(name = "member_change", indexes = @Index(name = "idx_member_change_version", columnList = "version, member_id"))
+public class MemberChange {
+
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+    private long version;
+    private boolean deleted;
+
+    @Column(name = "changed_at")
+    private long changedAt;
+}
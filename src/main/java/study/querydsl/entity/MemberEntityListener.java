@@ -0,0 +1,34 @@
+package study.querydsl.entity;
+
+import org.springframework.context.annotation.Lazy;
+import study.querydsl.repository.MemberChangeLog;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Member 의 insert/update/delete 를 변경 로그에 반영하는 엔티티 리스너
+ * Hibernate 가 SpringBeanContainer 로 생성하므로 빈을 주입받을 수 있다.
+ * EntityManagerFactory 생성 중에 만들어지기 때문에 순환참조를 피하려고 @Lazy 로 주입받는다.
+ * bulk 연산은 QueryDslConfig 에서 기록한다. 팀 통계는 TeamStatsListener 가 갱신한다.
+ */
+public class MemberEntityListener {
+
+    private final MemberChangeLog memberChangeLog;
+
+    public MemberEntityListener(@Lazy MemberChangeLog memberChangeLog) {
+        this.memberChangeLog = memberChangeLog;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void upserted(Member member) {
+        memberChangeLog.upserted(member.getId());
+    }
+
+    @PostRemove
+    public void removed(Member member) {
+        memberChangeLog.removed(member.getId());
+    }
+}
@@ -5,9 +5,14 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
@@ -19,10 +24,14 @@ import java.util.List;
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of ={"id", "name"})
+@EntityListeners(DataVersionListener.class)
 public class Team {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "team_seq")
+    @GenericGenerator(name = "team_seq", strategy = "study.querydsl.entity.PooledSequenceGenerator", parameters = {
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "team_seq"),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")})
     @Column(name = "team_id")
     private Long id;
     private String name;
@@ -30,7 +39,43 @@ public class Team {
     @OneToMany(mappedBy = "team")
     List<Member> members = new ArrayList<>();
 
+    /**
+     * 소속 회원 수 (members 컬렉션을 로딩하지 않고 알 수 있도록 따로 관리)
+     * 동시에 회원을 추가해도 맞도록 엔티티 값이 아니라 TeamStatsListener 가 커밋 직전에 DB 에서 증감한다.
+     * 그래서 로딩한 값은 같은 트랜잭션의 변경을 포함하지 않는다. (아래 나이 통계도 같다)
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "member_count", updatable = false)
+    private int memberCount;
+
+    /**
+     * 소속 회원 나이 합계/최소/최대 (/teams/stats, 팀 평균 비교용). 회원이 없으면 min/max 는 null
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "age_sum", updatable = false)
+    private long ageSum;
+
+    @Setter(AccessLevel.NONE)
+    @Column(name = "age_min", updatable = false)
+    private Integer ageMin;
+
+    @Setter(AccessLevel.NONE)
+    @Column(name = "age_max", updatable = false)
+    private Integer ageMax;
+
     public Team(String name) {
         this.name = name;
     }
+
+    void addMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.add(member);
+        }
+    }
+
+    void removeMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.remove(member);
+        }
+    }
 }
@@ -0,0 +1,265 @@
+package study.querydsl.entity;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 팀 통계 컬럼(Team.memberCount/ageSum/ageMin/ageMax)을 회원 insert/update/delete 에 맞춰 갱신하는 Hibernate 이벤트 리스너
+ * 엔티티 값을 읽어서 덮어쓰면 같은 팀에 동시에 회원을 추가할 때 갱신이 사라지므로,
+ * 트랜잭션에서 쌓인 팀별 증감을 커밋 직전에 update team set member_count = member_count + ? ... 로 반영한다.
+ * 팀 id 순서로 실행해서 여러 팀을 바꾸는 트랜잭션끼리 데드락이 나지 않게 한다.
+ *
+ * min/max 는 더해진 나이로 넓히고, 빠진 나이가 min/max 였던 팀만 member(team_id, age) 인덱스로 다시 구한다.
+ * META-INF/services 로 등록되는 Integrator 라 모든 SessionFactory 에 적용된다.
+ * bulk 연산은 이벤트가 없으니 recount 로 다시 센다. (QueryDslConfig)
+ */
+public class TeamStatsListener implements Integrator,
+        PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final String ADJUST_SQL = "update team set member_count = member_count + ?, age_sum = age_sum + ? where team_id = ?";
+    private static final String EXTEND_SQL = "update team set"
+            + " age_min = case when age_min is null or age_min > ? then ? else age_min end,"
+            + " age_max = case when age_max is null or age_max < ? then ? else age_max end"
+            + " where team_id = ?";
+    private static final String RECOMPUTE_SQL = "update team set"
+            + " age_min = (select min(m.age) from member m where m.team_id = ?),"
+            + " age_max = (select max(m.age) from member m where m.team_id = ?)"
+            + " where team_id = ? and (age_min >= ? or age_max <= ?)";
+    private static final String RECOUNT_JPQL = "update Team t set"
+            + " t.memberCount = (select count(m) from Member m where m.team = t),"
+            + " t.ageSum = (select coalesce(sum(m.age), 0) from Member m where m.team = t),"
+            + " t.ageMin = (select min(m.age) from Member m where m.team = t),"
+            + " t.ageMax = (select max(m.age) from Member m where m.team = t)";
+
+    // 트랜잭션의 세션 -> 팀 id 별 증감
+    private final Map<SharedSessionContractImplementor, Map<Long, TeamDelta>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 팀들의 통계를 member 테이블에서 다시 센다.
+     */
+    public static void recount(EntityManager em, Collection<Long> teamIds) {
+        if (teamIds.isEmpty()) {
+            return;
+        }
+        em.createQuery(RECOUNT_JPQL + " where t.id in :teamIds")
+                .setParameter("teamIds", teamIds)
+                .executeUpdate();
+    }
+
+    public static void recountAll(EntityManager em) {
+        em.createQuery(RECOUNT_JPQL).executeUpdate();
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            added(event.getSession(), event.getPersister(), event.getState());
+        }
+    }
+
+    /**
+     * 변경 전 상태가 없으면 (detached 엔티티를 update 한 경우) 무엇이 바뀌었는지 알 수 없으니 반영하지 않는다.
+     */
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member) || event.getOldState() == null) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        if (Objects.equals(teamIdOf(persister, event.getOldState()), teamIdOf(persister, event.getState()))
+                && ageOf(persister, event.getOldState()) == ageOf(persister, event.getState())) {
+            return;
+        }
+        removed(event.getSession(), persister, event.getOldState());
+        added(event.getSession(), persister, event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            removed(event.getSession(), event.getPersister(), event.getDeletedState());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private Long teamIdOf(EntityPersister persister, Object[] state) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        // 프록시여도 getId() 는 초기화하지 않는다.
+        return team != null ? ((Team) team).getId() : null;
+    }
+
+    private int ageOf(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+    }
+
+    private void added(EventSource session, EntityPersister persister, Object[] state) {
+        TeamDelta delta = deltaOf(session, teamIdOf(persister, state));
+        if (delta != null) {
+            delta.add(ageOf(persister, state));
+        }
+    }
+
+    private void removed(EventSource session, EntityPersister persister, Object[] state) {
+        TeamDelta delta = deltaOf(session, teamIdOf(persister, state));
+        if (delta != null) {
+            delta.remove(ageOf(persister, state));
+        }
+    }
+
+    private TeamDelta deltaOf(EventSource session, Long teamId) {
+        if (teamId == null) {
+            return null;
+        }
+        return pending.computeIfAbsent(session, key -> register(session)).computeIfAbsent(teamId, id -> new TeamDelta());
+    }
+
+    private Map<Long, TeamDelta> register(EventSource session) {
+        Map<Long, TeamDelta> deltas = new TreeMap<>();
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> apply(s, deltas));
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> pending.remove(s));
+        return deltas;
+    }
+
+    private void apply(SessionImplementor session, Map<Long, TeamDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        session.doWork(connection -> {
+            adjust(connection, deltas);
+            extend(connection, deltas);
+            recompute(connection, deltas);
+        });
+    }
+
+    private void adjust(Connection connection, Map<Long, TeamDelta> deltas) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(ADJUST_SQL)) {
+            for (Map.Entry<Long, TeamDelta> entry : deltas.entrySet()) {
+                update.setInt(1, entry.getValue().count);
+                update.setLong(2, entry.getValue().ageSum);
+                update.setLong(3, entry.getKey());
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+    }
+
+    private void extend(Connection connection, Map<Long, TeamDelta> deltas) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(EXTEND_SQL)) {
+            boolean batched = false;
+            for (Map.Entry<Long, TeamDelta> entry : deltas.entrySet()) {
+                TeamDelta delta = entry.getValue();
+                if (delta.addedMin == null) {
+                    continue;
+                }
+                update.setInt(1, delta.addedMin);
+                update.setInt(2, delta.addedMin);
+                update.setInt(3, delta.addedMax);
+                update.setInt(4, delta.addedMax);
+                update.setLong(5, entry.getKey());
+                update.addBatch();
+                batched = true;
+            }
+            if (batched) {
+                update.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * 빠진 나이가 지금 min 이하이거나 max 이상인 팀만 다시 구한다. (회원이 다 빠졌으면 null)
+     */
+    private void recompute(Connection connection, Map<Long, TeamDelta> deltas) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(RECOMPUTE_SQL)) {
+            boolean batched = false;
+            for (Map.Entry<Long, TeamDelta> entry : deltas.entrySet()) {
+                TeamDelta delta = entry.getValue();
+                if (delta.removedMin == null) {
+                    continue;
+                }
+                update.setLong(1, entry.getKey());
+                update.setLong(2, entry.getKey());
+                update.setLong(3, entry.getKey());
+                update.setInt(4, delta.removedMin);
+                update.setInt(5, delta.removedMax);
+                update.addBatch();
+                batched = true;
+            }
+            if (batched) {
+                update.executeBatch();
+            }
+        }
+    }
+
+    private static final class TeamDelta {
+
+        private int count;
+        private long ageSum;
+        private Integer addedMin;
+        private Integer addedMax;
+        private Integer removedMin;
+        private Integer removedMax;
+
+        private void add(int age) {
+            count++;
+            ageSum += age;
+            addedMin = addedMin == null ? age : Math.min(addedMin, age);
+            addedMax = addedMax == null ? age : Math.max(addedMax, age);
+        }
+
+        private void remove(int age) {
+            count--;
+            ageSum -= age;
+            removedMin = removedMin == null ? age : Math.min(removedMin, age);
+            removedMax = removedMax == null ? age : Math.max(removedMax, age);
+        }
+    }
+}
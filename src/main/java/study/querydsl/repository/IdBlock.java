@@ -0,0 +1,28 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 시퀀스로 예약한 연속된 id 구간 [first, first + size)
+ */
+@Getter
+@ToString
+public class IdBlock {
+
+    private final long first;
+    private final int size;
+
+    public IdBlock(long first, int size) {
+        this.first = first;
+        this.size = size;
+    }
+
+    public long getLast() {
+        return first + size - 1;
+    }
+
+    public boolean contains(long id) {
+        return id >= first && id <= getLast();
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * bulk 적재용 id 블록 예약
+ * 엔티티의 pooled-lo 시퀀스에서 값을 받아 allocation size 크기의 블록으로 나눠준다.
+ * Hibernate 의 id 할당과 같은 시퀀스를 쓰므로 여러 노드가 동시에 insert 해도 id 가 겹치지 않는다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdBlockAllocator {
+
+    private final EntityManager em;
+
+    /**
+     * idCount 개 이상의 id 를 예약한다. 블록끼리는 연속이 아닐 수 있다.
+     */
+    public List<IdBlock> reserve(Class<?> entityClass, int idCount) {
+        SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        IdentifierGenerator generator = sessionFactory.getIdentifierGenerator(entityClass.getName());
+        if (!(generator instanceof SequenceStyleGenerator)) {
+            throw new IllegalArgumentException("시퀀스로 id 를 생성하는 엔티티가 아닙니다. entity = " + entityClass.getName());
+        }
+
+        DatabaseStructure sequence = ((SequenceStyleGenerator) generator).getDatabaseStructure();
+        int blockSize = sequence.getIncrementSize();
+        Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+        // Hibernate 가 시퀀스를 조회할 때처럼 기본 schema/catalog 를 붙인다.
+        String sequenceName = sessionFactory.getSqlStringGenerationContext().format(sequence.getPhysicalName());
+        String nextValueSql = dialect.getSequenceNextValString(sequenceName);
+
+        List<IdBlock> blocks = new ArrayList<>();
+        for (int reserved = 0; reserved < idCount; reserved += blockSize) {
+            Number first = (Number) em.createNativeQuery(nextValueSql).getSingleResult();
+            blocks.add(new IdBlock(first.longValue(), blockSize));
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,316 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.TeamStatsListener;
+import study.querydsl.support.DataVersion;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 회원 나이 증감 write-behind 버퍼
+ * 회원마다 UPDATE 를 바로 실행하지 않고 증감값을 모아두었다가, flush-interval-ms 마다 또는 쌓인 회원 수가
+ * flush-threshold 를 넘으면 한 트랜잭션에서 update member set age = age + ? where member_id = ? 를 JDBC batch 로 실행한다.
+ * 회원 id 순서로 실행해서 다른 트랜잭션과 데드락이 나지 않게 한다. 종료 시에는 남은 값을 flush 한다. (flush-on-shutdown)
+ *
+ * JDBC 로 바로 update 하니 엔티티 리스너와 QueryDslConfig 를 거치지 않는다.
+ * 같은 트랜잭션에서 대상 팀의 통계를 다시 세고, DataVersion 을 한번 올리고, 변경 로그에 기록한다.
+ *
+ * DB 장애 등으로 실패하면 남은 증감값을 그대로 돌려놓고 다음 flush 때 다시 시도한다.
+ * 데이터 때문에 실패한 batch(나이 overflow 등)는 반씩 나눠 다시 실행해서 나머지는 반영하고,
+ * 실패한 회원은 max-retries 번까지 재시도한 뒤 버린다. (member.age.buffer.dropped)
+ *
+ * 버퍼는 stripe 로 나눠서 서로 다른 회원의 증감은 같은 락을 잡지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberAgeWriteBehind implements DisposableBean {
+
+    private static final int IN_CHUNK_SIZE = 500;
+    private static final String ADD_AGE_SQL = "update member set age = age + ? where member_id = ?";
+    // repository 프록시를 거치지 않는 bulk update 예외를 DataAccessException 으로 변환한다.
+    private static final HibernateJpaDialect JPA_DIALECT = new HibernateJpaDialect();
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityManager em;
+    private final DataVersion dataVersion;
+    private final MemberChangeLog memberChangeLog;
+    private final TransactionTemplate transactionTemplate;
+    private final Stripe[] stripes;
+    private final int flushThreshold;
+    private final int maxRetries;
+    private final boolean flushOnShutdown;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicInteger pendingMembers = new AtomicInteger();
+    // 아직 flush 되지 않은 가장 오래된 증감이 들어온 시각 (ms), 비어있으면 0
+    private final AtomicLong oldestPendingAt = new AtomicLong();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object flushLock = new Object();
+    // 데이터 오류로 반영하지 못한 회원별 실패 횟수 (flushLock 안에서만 사용)
+    private final Map<Long, Integer> failedAttempts = new HashMap<>();
+
+    private final Timer flushTimer;
+    private final Counter flushedCounter;
+    private final Counter failedCounter;
+    private final Counter droppedCounter;
+
+    public MemberAgeWriteBehind(JPAQueryFactory queryFactory,
+                                EntityManager em,
+                                DataVersion dataVersion,
+                                MemberChangeLog memberChangeLog,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${member.age-buffer.stripes:16}") int stripes,
+                                @Value("${member.age-buffer.flush-interval-ms:1000}") long flushIntervalMillis,
+                                @Value("${member.age-buffer.flush-threshold:10000}") int flushThreshold,
+                                @Value("${member.age-buffer.max-retries:3}") int maxRetries,
+                                @Value("${member.age-buffer.flush-on-shutdown:true}") boolean flushOnShutdown) {
+        this.queryFactory = queryFactory;
+        this.em = em;
+        this.dataVersion = dataVersion;
+        this.memberChangeLog = memberChangeLog;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.flushThreshold = flushThreshold;
+        this.maxRetries = maxRetries;
+        this.flushOnShutdown = flushOnShutdown;
+
+        this.flushTimer = meterRegistry.timer("member.age.buffer.flush");
+        this.flushedCounter = meterRegistry.counter("member.age.buffer.flushed");
+        this.failedCounter = meterRegistry.counter("member.age.buffer.flush.failed");
+        this.droppedCounter = meterRegistry.counter("member.age.buffer.dropped");
+        meterRegistry.gauge("member.age.buffer.pending", pendingMembers);
+        meterRegistry.gauge("member.age.buffer.lag", oldestPendingAt,
+                oldest -> oldest.get() == 0 ? 0 : System.currentTimeMillis() - oldest.get());
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("member-age-flush-"));
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 회원 나이에 delta 를 더하도록 예약한다. DB 에는 다음 flush 때 반영된다.
+     */
+    public void add(Long memberId, int delta) {
+        if (memberId == null || delta == 0) {
+            return;
+        }
+        boolean added;
+        Stripe stripe = stripes[Math.floorMod(memberId.hashCode(), stripes.length)];
+        synchronized (stripe) {
+            Integer previous = stripe.deltas.get(memberId);
+            stripe.deltas.put(memberId, previous == null ? delta : previous + delta);
+            added = previous == null;
+        }
+        oldestPendingAt.compareAndSet(0, System.currentTimeMillis());
+        if (added && pendingMembers.incrementAndGet() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * 모아둔 증감값을 지금 반영한다.
+     * @return update 된 회원 수
+     */
+    public long flush() {
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            long drainedSince = oldestPendingAt.getAndSet(0);
+            Map<Long, Integer> drained = drain();
+            if (drained.isEmpty()) {
+                return 0;
+            }
+
+            Map<Long, Integer> remaining = new HashMap<>(drained);
+            Map<Long, Integer> failed = new HashMap<>();
+            long updated = 0;
+            long startedAt = System.nanoTime();
+            try {
+                updated = updateBatch(new ArrayList<>(new TreeMap<>(drained).entrySet()), remaining, failed);
+            } catch (RuntimeException e) {
+                // 반영하지 못한 증감값은 그대로 돌려놓고 다음 flush 때 다시 시도한다.
+                failedCounter.increment();
+                restore(remaining, drainedSince);
+                throw e;
+            } finally {
+                flushedCounter.increment(updated);
+                flushTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                failedAttempts.keySet().removeIf(memberId -> drained.containsKey(memberId)
+                        && !remaining.containsKey(memberId) && !failed.containsKey(memberId));
+                retryOrDrop(failed, drainedSince);
+            }
+            return updated;
+        }
+    }
+
+    public int pendingMembers() {
+        return pendingMembers.get();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        if (flushOnShutdown) {
+            flush();
+        } else if (pendingMembers.get() > 0) {
+            log.warn("member age buffer dropped {} pending members on shutdown", pendingMembers.get());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("member age buffer flush failed, pending = {}", pendingMembers.get(), e);
+        }
+    }
+
+    private Map<Long, Integer> drain() {
+        Map<Long, Integer> drained = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            Map<Long, Integer> deltas;
+            synchronized (stripe) {
+                deltas = stripe.deltas;
+                stripe.deltas = new HashMap<>();
+            }
+            pendingMembers.addAndGet(-deltas.size());
+            deltas.forEach((memberId, delta) -> {
+                if (delta != 0) {
+                    drained.put(memberId, delta);
+                }
+            });
+        }
+        return drained;
+    }
+
+    /**
+     * 증감값들을 한 트랜잭션에서 batch update 한다. 반영된(커밋된) 회원은 remaining 에서 뺀다.
+     * 데이터 오류면 batch 를 반씩 나눠 다시 실행해서, 실패한 회원만 failed 에 남긴다. 그 외 오류는 그대로 던진다.
+     */
+    private long updateBatch(List<Map.Entry<Long, Integer>> deltas, Map<Long, Integer> remaining, Map<Long, Integer> failed) {
+        try {
+            Long updated = transactionTemplate.execute(status -> addAges(deltas));
+            deltas.forEach(delta -> remaining.remove(delta.getKey()));
+            return updated != null ? updated : 0;
+        } catch (RuntimeException e) {
+            if (!(e instanceof DataIntegrityViolationException)
+                    && !(JPA_DIALECT.translateExceptionIfPossible(e) instanceof DataIntegrityViolationException)) {
+                throw e;
+            }
+            if (deltas.size() == 1) {
+                Map.Entry<Long, Integer> delta = deltas.get(0);
+                log.warn("member age buffer update failed. memberId = {}, delta = {}", delta.getKey(), delta.getValue(), e);
+                failed.put(delta.getKey(), delta.getValue());
+                remaining.remove(delta.getKey());
+                return 0;
+            }
+            int half = deltas.size() / 2;
+            return updateBatch(deltas.subList(0, half), remaining, failed)
+                    + updateBatch(deltas.subList(half, deltas.size()), remaining, failed);
+        }
+    }
+
+    private long addAges(List<Map.Entry<Long, Integer>> deltas) {
+        int[] counts = em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(ADD_AGE_SQL)) {
+                for (Map.Entry<Long, Integer> delta : deltas) {
+                    update.setInt(1, delta.getValue());
+                    update.setLong(2, delta.getKey());
+                    update.addBatch();
+                }
+                return update.executeBatch();
+            }
+        });
+
+        List<Long> updatedIds = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                updatedIds.add(deltas.get(i).getKey());
+            }
+        }
+        if (updatedIds.isEmpty()) {
+            return 0;
+        }
+        TeamStatsListener.recount(em, teamIdsOf(updatedIds));
+        dataVersion.bump();
+        updatedIds.forEach(memberChangeLog::upserted);
+        return updatedIds.size();
+    }
+
+    private Set<Long> teamIdsOf(List<Long> memberIds) {
+        Set<Long> teamIds = new TreeSet<>();
+        for (int from = 0; from < memberIds.size(); from += IN_CHUNK_SIZE) {
+            teamIds.addAll(queryFactory
+                    .select(member.team.id)
+                    .distinct()
+                    .from(member)
+                    .where(member.id.in(memberIds.subList(from, Math.min(from + IN_CHUNK_SIZE, memberIds.size()))),
+                            member.team.isNotNull())
+                    .fetch());
+        }
+        return teamIds;
+    }
+
+    /**
+     * 증감값을 버퍼에 돌려놓는다. lag 이 리셋되지 않게 원래 들어온 시각을 유지한다.
+     */
+    private void restore(Map<Long, Integer> deltas, long drainedSince) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        deltas.forEach(this::add);
+        oldestPendingAt.accumulateAndGet(drainedSince,
+                (current, since) -> current == 0 || since == 0 ? Math.max(current, since) : Math.min(current, since));
+    }
+
+    private void retryOrDrop(Map<Long, Integer> failed, long drainedSince) {
+        Map<Long, Integer> retry = new HashMap<>();
+        failed.forEach((memberId, delta) -> {
+            if (failedAttempts.merge(memberId, 1, Integer::sum) > maxRetries) {
+                failedAttempts.remove(memberId);
+                droppedCounter.increment();
+                log.error("member age buffer dropped delta after {} retries. memberId = {}, delta = {}", maxRetries, memberId, delta);
+            } else {
+                retry.put(memberId, delta);
+            }
+        });
+        restore(retry, drainedSince);
+    }
+
+    private static final class Stripe {
+        private Map<Long, Integer> deltas = new HashMap<>();
+    }
+}
@@ -0,0 +1,290 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberChangeDto;
+import study.querydsl.dto.MemberChangesDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.support.DataVersion;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.QDataVersionCounter.dataVersionCounter;
+import static study.querydsl.entity.QMemberChange.memberChange;
+
+/**
+ * 회원 변경 로그 (delta sync 용)
+ * 변경은 member_change 테이블에 쓰는 트랜잭션 안에서, 커밋 직전에 그 트랜잭션의 DataVersion 으로 기록한다.
+ * 그래서 롤백되면 남지 않고, 재시작해도 없어지지 않으며, 같은 DB 를 쓰는 노드끼리 같은 로그를 본다.
+ * 버전 순서가 커밋 순서와 같으므로 since 이후만 읽으면 빠지는 변경이 없다. (DataVersion 참고)
+ *
+ * Member 의 insert/update/delete 는 MemberEntityListener 가, bulk update/delete 는 QueryDslConfig 가 기록한다.
+ * 회원마다 마지막 변경 하나만 남기고(압축), 삭제(tombstone)는 tombstone-retention-ms 가 지나면 지운다.
+ * 지운 tombstone 보다 오래된 since 는 resync 로 응답한다. (data_version.min_since)
+ * 팀 이름 변경은 회원 변경으로 기록하지 않는다.
+ */
+@Component
+public class MemberChangeLog {
+
+    private static final Long VERSION_ROW_ID = 1L;
+    private static final int IN_CHUNK_SIZE = 500;
+    private static final String MIN_SINCE_SQL = "update data_version set min_since = ? where id = ?";
+    private static final String INSERT_SQL = "insert into member_change (member_id, version, deleted, changed_at) values (?, ?, ?, ?)";
+
+    private final EntityManager em;
+    private final MemberJpaRepository memberJpaRepository;
+    private final DataVersion dataVersion;
+    private final TransactionTemplate transactionTemplate;
+    private final long tombstoneRetentionMillis;
+
+    // 기록할 트랜잭션의 세션 -> 커밋 직전에 쓸 변경
+    private final Map<SharedSessionContractImplementor, Pending> pending = new ConcurrentHashMap<>();
+
+    public MemberChangeLog(EntityManager em,
+                           MemberJpaRepository memberJpaRepository,
+                           DataVersion dataVersion,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${member.changes.tombstone-retention-ms:3600000}") long tombstoneRetentionMillis) {
+        this.em = em;
+        this.memberJpaRepository = memberJpaRepository;
+        this.dataVersion = dataVersion;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tombstoneRetentionMillis = tombstoneRetentionMillis;
+    }
+
+    public void upserted(Long memberId) {
+        Pending changes = pending();
+        if (changes != null && memberId != null) {
+            changes.deletedByMember.put(memberId, false);
+        }
+    }
+
+    public void removed(Long memberId) {
+        Pending changes = pending();
+        if (changes != null && memberId != null) {
+            changes.deletedByMember.put(memberId, true);
+        }
+    }
+
+    /**
+     * 변경된 회원을 다 기록할 수 없을 때 (큰 bulk 연산) 모든 소비자가 다시 전체를 받게 한다.
+     */
+    public void resyncAll() {
+        Pending changes = pending();
+        if (changes != null) {
+            changes.resync = true;
+        }
+    }
+
+    public long currentVersion() {
+        return dataVersion.current();
+    }
+
+    /**
+     * since 이후 변경을 버전 순으로 최대 limit 개
+     * 한 트랜잭션(버전)의 변경은 나누지 않으므로, 한 버전의 변경이 limit 보다 많으면 그 버전만 다 준다.
+     * 회원 정보는 조회 시점의 값이라 버전보다 최신일 수 있다. 그 사이 삭제된 회원은 다음 요청의 tombstone 으로 온다.
+     */
+    public MemberChangesDto changesSince(long since, int limit) {
+        compact();
+        long current = dataVersion.current();
+        if (since > current) {
+            return new MemberChangesDto(current, true, false, Collections.emptyList());
+        }
+
+        List<Tuple> rows = changes(since, current, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<Tuple> page = hasMore ? trimPartialVersion(rows.subList(0, limit), rows.get(limit)) : rows;
+        if (hasMore && page.isEmpty()) {
+            // 한 버전의 변경이 limit 보다 많다.
+            long version = rows.get(0).get(memberChange.version);
+            page = changesOf(version);
+            hasMore = !changes(version, current, 1).isEmpty();
+        }
+        // 읽는 사이 압축된 tombstone 이 있으면 빠졌을 수 있으니 조회 후에 확인한다.
+        if (since < minSince()) {
+            return new MemberChangesDto(current, true, false, Collections.emptyList());
+        }
+        long next = hasMore ? page.get(page.size() - 1).get(memberChange.version) : current;
+
+        List<Long> upsertedIds = page.stream()
+                .filter(row -> !row.get(memberChange.deleted))
+                .map(row -> row.get(memberChange.memberId))
+                .collect(Collectors.toList());
+        Map<Long, MemberTeamDto> members = memberJpaRepository.findAllTeamDtoByIds(upsertedIds).stream()
+                .collect(Collectors.toMap(MemberTeamDto::getMemberId, Function.identity()));
+
+        List<MemberChangeDto> result = new ArrayList<>();
+        for (Tuple row : page) {
+            Long memberId = row.get(memberChange.memberId);
+            boolean deleted = row.get(memberChange.deleted);
+            MemberTeamDto member = members.get(memberId);
+            if (deleted || member != null) {
+                result.add(new MemberChangeDto(row.get(memberChange.version), memberId, deleted, member));
+            }
+        }
+        return new MemberChangesDto(next, false, hasMore, result);
+    }
+
+    private List<Tuple> changes(long since, long until, int limit) {
+        return new JPAQuery<>(em)
+                .select(memberChange.memberId, memberChange.version, memberChange.deleted)
+                .from(memberChange)
+                .where(memberChange.version.gt(since),
+                        memberChange.version.loe(until))
+                .orderBy(memberChange.version.asc(), memberChange.memberId.asc())
+                .limit(limit)
+                .fetch();
+    }
+
+    private List<Tuple> changesOf(long version) {
+        return new JPAQuery<>(em)
+                .select(memberChange.memberId, memberChange.version, memberChange.deleted)
+                .from(memberChange)
+                .where(memberChange.version.eq(version))
+                .orderBy(memberChange.memberId.asc())
+                .fetch();
+    }
+
+    /**
+     * 다음 since 가 버전이라 페이지 끝에서 잘린 버전은 다음 페이지로 넘긴다.
+     */
+    private List<Tuple> trimPartialVersion(List<Tuple> page, Tuple first) {
+        long cut = first.get(memberChange.version);
+        int end = page.size();
+        while (end > 0 && page.get(end - 1).get(memberChange.version) == cut) {
+            end--;
+        }
+        return page.subList(0, end);
+    }
+
+    private long minSince() {
+        Long minSince = new JPAQuery<>(em)
+                .select(dataVersionCounter.minSince)
+                .from(dataVersionCounter)
+                .where(dataVersionCounter.id.eq(VERSION_ROW_ID))
+                .fetchOne();
+        return minSince != null ? minSince : 0;
+    }
+
+    /**
+     * 보관 기간이 지난 tombstone 을 지우고 min_since 를 올린다.
+     * QueryDslConfig 의 bulk 기록을 거치면 데이터 버전이 올라가므로 clause 를 직접 만든다.
+     */
+    private void compact() {
+        long expiredBefore = System.currentTimeMillis() - tombstoneRetentionMillis;
+        Long expiredVersion = new JPAQuery<>(em)
+                .select(memberChange.version.max())
+                .from(memberChange)
+                .where(memberChange.deleted.isTrue(),
+                        memberChange.changedAt.loe(expiredBefore))
+                .fetchOne();
+        if (expiredVersion == null) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            new JPADeleteClause(em, memberChange)
+                    .where(memberChange.deleted.isTrue(),
+                            memberChange.version.loe(expiredVersion))
+                    .execute();
+            new JPAUpdateClause(em, dataVersionCounter)
+                    .set(dataVersionCounter.minSince, expiredVersion)
+                    .where(dataVersionCounter.id.eq(VERSION_ROW_ID),
+                            dataVersionCounter.minSince.lt(expiredVersion))
+                    .execute();
+        });
+    }
+
+    /**
+     * 지금 트랜잭션에 기록할 변경. 트랜잭션 밖에서는 JPA 쓰기가 없으니 null
+     * 데이터 버전을 먼저 올려야 커밋 직전에 그 버전을 받을 수 있다.
+     */
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        dataVersion.bump();
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        return pending.computeIfAbsent(session, key -> register(session));
+    }
+
+    private Pending register(SessionImplementor session) {
+        Pending changes = new Pending();
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> write(s, changes));
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> pending.remove(s));
+        return changes;
+    }
+
+    private void write(SessionImplementor session, Pending changes) {
+        long version = dataVersion.committingVersion(session);
+        long changedAt = System.currentTimeMillis();
+        List<Long> memberIds = new ArrayList<>(changes.deletedByMember.keySet());
+        session.doWork(connection -> {
+            if (changes.resync) {
+                try (PreparedStatement update = connection.prepareStatement(MIN_SINCE_SQL)) {
+                    update.setLong(1, version);
+                    update.setLong(2, VERSION_ROW_ID);
+                    update.executeUpdate();
+                }
+            }
+            for (int from = 0; from < memberIds.size(); from += IN_CHUNK_SIZE) {
+                List<Long> chunk = memberIds.subList(from, Math.min(from + IN_CHUNK_SIZE, memberIds.size()));
+                replace(connection, chunk, changes.deletedByMember, version, changedAt);
+            }
+        });
+    }
+
+    /**
+     * 회원마다 마지막 변경만 남도록 이전 변경을 지우고 새로 넣는다.
+     */
+    private void replace(Connection connection, List<Long> memberIds, Map<Long, Boolean> deletedByMember,
+                         long version, long changedAt) throws SQLException {
+        String deleteSql = "delete from member_change where member_id in ("
+                + String.join(", ", Collections.nCopies(memberIds.size(), "?")) + ")";
+        try (PreparedStatement delete = connection.prepareStatement(deleteSql)) {
+            for (int i = 0; i < memberIds.size(); i++) {
+                delete.setLong(i + 1, memberIds.get(i));
+            }
+            delete.executeUpdate();
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+            for (Long memberId : memberIds) {
+                insert.setLong(1, memberId);
+                insert.setLong(2, version);
+                insert.setBoolean(3, deletedByMember.get(memberId));
+                insert.setLong(4, changedAt);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static final class Pending {
+
+        // memberId -> 삭제 여부, 같은 트랜잭션의 마지막 변경만 남긴다.
+        private final Map<Long, Boolean> deletedByMember = new HashMap<>();
+        private volatile boolean resync;
+    }
+}
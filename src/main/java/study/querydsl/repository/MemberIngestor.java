@@ -0,0 +1,313 @@
+package study.querydsl.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.IngestChunkDto;
+import study.querydsl.dto.IngestResultDto;
+import study.querydsl.dto.MemberIngestRow;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.BulkheadFullException;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * NDJSON 회원 대량 등록
+ * 요청 스레드는 본문을 한 줄씩 읽어 chunk-size 개씩 묶어 크기가 제한된 큐에 넣고, 저장 스레드가 chunk 마다 트랜잭션으로 저장한다.
+ * 저장이 밀려 큐가 차면 본문 읽기를 멈추므로 클라이언트 전송도 느려진다. (backpressure)
+ *
+ * 팀 이름은 요청 안에서 캐시해서 한번만 조회하고, 없으면 만든다.
+ * chunk 의 팀을 회원보다 먼저 한번에 조회/생성해서, insert 가 team/member 로 번갈아 나오지 않고 테이블별로 JDBC batch 된다.
+ * 잘못된 줄은 그 줄만, DB 오류는 그 chunk 만 실패로 기록하고 계속 진행한다.
+ * 한 줄은 max-line-length 자까지만 메모리에 올리고, 넘는 줄은 나머지를 버리고 실패로 기록한다.
+ */
+@Component
+public class MemberIngestor implements DisposableBean {
+
+    private static final Chunk END = new Chunk(-1, 0);
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader rowReader;
+    private final int chunkSize;
+    private final int queueCapacity;
+    private final int maxLineLength;
+    private final ThreadPoolExecutor executor;
+
+    public MemberIngestor(EntityManager em,
+                          JPAQueryFactory queryFactory,
+                          PlatformTransactionManager transactionManager,
+                          ObjectMapper objectMapper,
+                          @Value("${member.ingest.chunk-size:500}") int chunkSize,
+                          @Value("${member.ingest.queue-capacity:4}") int queueCapacity,
+                          @Value("${member.ingest.max-concurrent:2}") int maxConcurrent,
+                          @Value("${member.ingest.max-line-length:8192}") int maxLineLength) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rowReader = objectMapper.readerFor(MemberIngestRow.class);
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+        this.maxLineLength = maxLineLength;
+        // 동시에 진행하는 등록 요청 수 제한. 넘으면 기다리지 않고 503
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(),
+                new CustomizableThreadFactory("member-ingest-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public IngestResultDto ingest(InputStream body) throws IOException {
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Future<List<IngestChunkDto>> writer;
+        try {
+            writer = executor.submit(() -> writeChunks(queue));
+        } catch (RejectedExecutionException e) {
+            throw new BulkheadFullException("진행 중인 회원 등록이 너무 많습니다.", e);
+        }
+
+        try {
+            readChunks(body, queue, writer);
+            enqueue(queue, END, writer);
+            return new IngestResultDto(writer.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("회원 등록이 중단됐습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("회원 등록에 실패했습니다.", e.getCause());
+        } finally {
+            writer.cancel(true);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void readChunks(InputStream body, BlockingQueue<Chunk> queue, Future<?> writer)
+            throws IOException, InterruptedException, ExecutionException {
+        LineReader reader = new LineReader(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)), maxLineLength);
+        long lineNumber = 0;
+        int index = 0;
+        Chunk chunk = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (!reader.tooLong && line.isBlank()) {
+                continue;
+            }
+            if (chunk == null) {
+                chunk = new Chunk(index++, lineNumber);
+            }
+            chunk.lastLine = lineNumber;
+            if (reader.tooLong) {
+                chunk.fail("line " + lineNumber + ": " + maxLineLength + "자를 넘는 줄입니다.");
+            } else {
+                parse(line, lineNumber, chunk);
+            }
+            if (chunk.size() == chunkSize) {
+                enqueue(queue, chunk, writer);
+                chunk = null;
+            }
+        }
+        if (chunk != null) {
+            enqueue(queue, chunk, writer);
+        }
+    }
+
+    private void parse(String line, long lineNumber, Chunk chunk) {
+        try {
+            MemberIngestRow row = rowReader.readValue(line);
+            if (!hasText(row.getUsername())) {
+                chunk.fail("line " + lineNumber + ": username 이 없습니다.");
+            } else {
+                chunk.rows.add(row);
+            }
+        } catch (JsonProcessingException e) {
+            chunk.fail("line " + lineNumber + ": " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * 큐가 차 있으면 기다린다. 저장 스레드가 먼저 끝났으면(실패) 더 기다리지 않는다.
+     */
+    private void enqueue(BlockingQueue<Chunk> queue, Chunk chunk, Future<?> writer)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                writer.get();
+                throw new IllegalStateException("저장 스레드가 종료됐습니다.");
+            }
+        }
+    }
+
+    private List<IngestChunkDto> writeChunks(BlockingQueue<Chunk> queue) throws InterruptedException {
+        Map<String, Long> teamIds = new HashMap<>();
+        List<IngestChunkDto> results = new ArrayList<>();
+        for (Chunk chunk = queue.take(); chunk != END; chunk = queue.take()) {
+            results.add(write(chunk, teamIds));
+        }
+        return results;
+    }
+
+    private IngestChunkDto write(Chunk chunk, Map<String, Long> teamIds) {
+        Set<String> createdTeams = new HashSet<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                em.unwrap(Session.class).setJdbcBatchSize(chunkSize);
+                resolveTeams(chunk.rows, teamIds, createdTeams);
+                for (MemberIngestRow row : chunk.rows) {
+                    Team memberTeam = hasText(row.getTeamName()) ? em.getReference(Team.class, teamIds.get(row.getTeamName())) : null;
+                    em.persist(new Member(row.getUsername(), row.getAge(), memberTeam));
+                }
+                em.flush();
+                em.clear();
+            });
+            return new IngestChunkDto(chunk.index, chunk.firstLine, chunk.lastLine, chunk.rows.size(), chunk.failed, chunk.error);
+        } catch (RuntimeException e) {
+            // 롤백된 트랜잭션에서 만든 팀은 캐시에서 뺀다.
+            createdTeams.forEach(teamIds::remove);
+            // chunk 전체가 실패했으니 줄 오류보다 롤백 원인을 알려준다.
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            return new IngestChunkDto(chunk.index, chunk.firstLine, chunk.lastLine, 0, chunk.failed + chunk.rows.size(), error);
+        }
+    }
+
+    /**
+     * 캐시에 없는 팀 이름을 in 조회 한번으로 찾고, 없는 팀은 만든다. (같은 이름이 여러개면 id 가 작은 팀)
+     * 회원을 persist 하기 전에 해야 조회 전 자동 flush 로 회원 insert 가 chunk 중간에 나가지 않는다.
+     */
+    private void resolveTeams(List<MemberIngestRow> rows, Map<String, Long> teamIds, Set<String> createdTeams) {
+        Set<String> teamNames = new LinkedHashSet<>();
+        for (MemberIngestRow row : rows) {
+            if (hasText(row.getTeamName()) && !teamIds.containsKey(row.getTeamName())) {
+                teamNames.add(row.getTeamName());
+            }
+        }
+        if (teamNames.isEmpty()) {
+            return;
+        }
+        List<Tuple> found = queryFactory
+                .select(team.name, team.id)
+                .from(team)
+                .where(team.name.in(teamNames))
+                .orderBy(team.id.asc())
+                .fetch();
+        for (Tuple row : found) {
+            teamIds.putIfAbsent(row.get(team.name), row.get(team.id));
+        }
+        for (String teamName : teamNames) {
+            if (!teamIds.containsKey(teamName)) {
+                Team newTeam = new Team(teamName);
+                em.persist(newTeam);
+                createdTeams.add(teamName);
+                teamIds.put(teamName, newTeam.getId());
+            }
+        }
+    }
+
+    /**
+     * BufferedReader.readLine 은 줄 길이 제한이 없어서, 개행 없는 본문이 오면 전부 메모리에 올린다.
+     * maxLength 자까지만 모으고 나머지는 개행까지 읽어 버린다. (tooLong)
+     */
+    private static final class LineReader {
+
+        private final BufferedReader reader;
+        private final int maxLength;
+        private final StringBuilder line = new StringBuilder();
+        private boolean tooLong;
+
+        private LineReader(BufferedReader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * 다음 줄 (개행 문자 제외). 본문이 끝났으면 null
+         */
+        private String readLine() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            // \r\n 의 \r 까지 담을 수 있게 한 글자 더 받는다.
+            for (; c != -1 && c != '\n'; c = reader.read()) {
+                if (line.length() <= maxLength) {
+                    line.append((char) c);
+                } else {
+                    tooLong = true;
+                }
+            }
+            if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+            if (line.length() > maxLength) {
+                tooLong = true;
+            }
+            return tooLong ? "" : line.toString();
+        }
+    }
+
+    private static final class Chunk {
+
+        private final int index;
+        private final long firstLine;
+        private long lastLine;
+        private final List<MemberIngestRow> rows = new ArrayList<>();
+        private int failed;
+        private String error;
+
+        private Chunk(int index, long firstLine) {
+            this.index = index;
+            this.firstLine = firstLine;
+            this.lastLine = firstLine;
+        }
+
+        private int size() {
+            return rows.size() + failed;
+        }
+
+        private void fail(String error) {
+            failed++;
+            if (this.error == null) {
+                this.error = error;
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package study.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
@@ -9,9 +10,17 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.support.QueryDeadline;
+import study.querydsl.support.QueryTracing;
+import study.querydsl.support.RepositoryQueryEvents;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 import static org.springframework.util.StringUtils.hasText;
@@ -22,8 +31,17 @@ import static study.querydsl.entity.QTeam.team;
 @RequiredArgsConstructor
 public class MemberJpaRepository {
 
+    /**
+     * in 절 하나에 넣는 최대 id 개수 (2의 거듭제곱이라 꽉 찬 chunk 는 패딩이 필요없다)
+     */
+    private static final int IN_CHUNK_SIZE = 512;
+
+    private static final String FIND_ALL = "select m from Member m";
+    private static final String FIND_BY_USERNAME = "select m from Member m where m.username = :username";
+
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final QueryTracing queryTracing;
 
     public void save(Member member) {
         em.persist(member);
@@ -34,9 +52,70 @@ public class MemberJpaRepository {
         return Optional.ofNullable(findMember);
     }
 
+    /**
+     * 여러 id 를 한번에 조회
+     * findById 를 반복 호출하지 않고 in 절로 chunk 단위 조회한다.
+     */
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        List<Member> result = new ArrayList<>();
+        for (List<Long> chunk : toPaddedChunks(ids)) {
+            result.addAll(queryFactory
+                    .selectFrom(member)
+                    .where(member.id.in(chunk))
+                    .fetch());
+        }
+        return result;
+    }
+
+    public List<MemberTeamDto> findAllTeamDtoByIds(Collection<Long> ids) {
+        List<MemberTeamDto> result = new ArrayList<>();
+        for (List<Long> chunk : toPaddedChunks(ids)) {
+            result.addAll(queryFactory
+                    .select(new QMemberTeamDto(
+                            member.id.as("memberId"),
+                            member.username,
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.id.in(chunk))
+                    .fetch());
+        }
+        return result;
+    }
+
+    /**
+     * id 목록을 IN_CHUNK_SIZE 단위로 나누고, 각 chunk 를 2의 거듭제곱 크기로 패딩한다.
+     * in 절 파라미터 개수가 몇 가지로 고정되니 Hibernate/H2 의 쿼리 플랜 캐시를 재사용할 수 있다.
+     * 패딩은 마지막 id 를 반복해서 채우므로 결과에는 영향이 없다.
+     */
+    private List<List<Long>> toPaddedChunks(Collection<Long> ids) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinctIds.removeIf(Objects::isNull);
+
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += IN_CHUNK_SIZE) {
+            int to = Math.min(from + IN_CHUNK_SIZE, distinctIds.size());
+            List<Long> chunk = new ArrayList<>(distinctIds.subList(from, to));
+
+            int paddedSize = Integer.highestOneBit(chunk.size());
+            if (paddedSize < chunk.size()) {
+                paddedSize <<= 1;
+            }
+            Long last = chunk.get(chunk.size() - 1);
+            while (chunk.size() < paddedSize) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
     public List<Member> findAll() {
-        return em.createQuery("select m from Member m", Member.class)
-                .getResultList();
+        TypedQuery<Member> query = em.createQuery(FIND_ALL, Member.class);
+        QueryDeadline.applyTo(query);
+        return RepositoryQueryEvents.record(query::getResultList, List::size, () -> FIND_ALL);
     }
 
     public List<Member> findAllQueryDsl() {
@@ -46,9 +125,10 @@ public class MemberJpaRepository {
     }
 
     public List<Member> findByUsername(String username) {
-        return em.createQuery("select m from Member m where m.username = :username", Member.class)
-                .setParameter("username", username)
-                .getResultList();
+        TypedQuery<Member> query = em.createQuery(FIND_BY_USERNAME, Member.class)
+                .setParameter("username", username);
+        QueryDeadline.applyTo(query);
+        return RepositoryQueryEvents.record(query::getResultList, List::size, () -> FIND_BY_USERNAME);
     }
 
     public List<Member> findByUsernameQueryDsl(String username) {
@@ -58,6 +138,36 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    /**
+     * lower(username) 대신 정규화된 username_lower 컬럼을 조회해서 인덱스를 타게 한다.
+     */
+    public List<Member> findByUsernameIgnoreCase(String username) {
+        return queryFactory
+                .selectFrom(member)
+                .where(member.usernameLower.eq(Member.normalizeUsername(username)))
+                .fetch();
+    }
+
+    /**
+     * 팀 평균 나이보다 나이가 많은 회원
+     * 회원마다 avg(age) 서브쿼리를 실행하지 않고 team 에 미리 계산해둔 회원 수/나이 합계(TeamStatsListener)와 비교한다.
+     * age > age_sum / member_count 를 나눗셈 없이 age * member_count > age_sum 으로 비교한다.
+     * 통계는 커밋된 값이라 같은 트랜잭션에서 아직 커밋하지 않은 변경은 반영되지 않는다.
+     */
+    public List<MemberTeamDto> findOlderThanTeamAverage() {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .join(member.team, team)
+                .where(member.age.longValue().multiply(team.memberCount).gt(team.ageSum))
+                .fetch();
+    }
+
     /**
      * 동적쿼리, 성능최적화
      * @param condition
@@ -96,6 +206,20 @@ public class MemberJpaRepository {
     }
 
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return queryTracing.fetch("MemberJpaRepository.search", condition.shape(),
+                () -> searchQuery(condition).fetch());
+    }
+
+    /**
+     * member_id 순으로 limit 개까지만 조회 (페이징 없는 검색이 테이블 전체를 메모리에 올리지 않도록)
+     * 정렬이 /members/page 의 기본 정렬과 같아서, 잘린 뒤는 같은 크기의 다음 페이지로 이어 받을 수 있다.
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition, long limit) {
+        return queryTracing.fetch("MemberJpaRepository.search", condition.shape(),
+                () -> searchQuery(condition).orderBy(member.id.asc()).limit(limit).fetch());
+    }
+
+    private JPAQuery<MemberTeamDto> searchQuery(MemberSearchCondition condition) {
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -109,8 +233,7 @@ public class MemberJpaRepository {
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+                        ageLoe(condition.getAgeLoe()));
     }
 
     /**
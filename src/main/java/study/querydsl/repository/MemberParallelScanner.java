@@ -0,0 +1,213 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원 전체 병렬 스캔 (export, 재계산용)
+ * member.id 범위를 partitions 개로 나누고, 파티션마다 EntityManager(커넥션)를 따로 열어 동시에 스트리밍한다.
+ * 동시에 쓰는 커넥션 수는 member.scan.parallelism 을 넘지 않는다.
+ * 지정하지 않으면 CPU 코어 수와 (hikari 커넥션 풀 크기 - member.scan.pool-headroom) 중 작은 값이다.
+ * 스캔이 풀을 다 잡으면 요청 처리와 DbBulkhead 가 커넥션을 기다려야 하므로 여유분을 남긴다.
+ */
+@Repository
+public class MemberParallelScanner {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final String CSV_HEADER = "memberId,username,age,teamId,teamName";
+
+    private final EntityManagerFactory emf;
+    private final int parallelism;
+
+    public MemberParallelScanner(EntityManagerFactory emf,
+                                 @Value("${member.scan.parallelism:0}") int parallelism,
+                                 @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                 @Value("${member.scan.pool-headroom:2}") int poolHeadroom) {
+        this.emf = emf;
+        this.parallelism = parallelism > 0
+                ? parallelism
+                : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), poolSize - poolHeadroom));
+    }
+
+    /**
+     * 모든 회원에 action 을 실행한다. 여러 스레드에서 동시에 호출되니 action 은 thread-safe 해야한다.
+     * @return 스캔한 회원 수
+     */
+    public long forEach(int partitions, Consumer<MemberTeamDto> action) {
+        List<Long> counts = scan(partitions, (index, rows) -> {
+            long count = 0;
+            Iterator<MemberTeamDto> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                count++;
+            }
+            return count;
+        });
+        return counts.stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * 파티션마다 directory/members-{index}.csv 파일로 내보낸다.
+     * @return 만들어진 파일 목록 (파티션 순서)
+     */
+    public List<Path> exportCsv(int partitions, Path directory) {
+        return scan(partitions, (index, rows) -> {
+            Path file = directory.resolve("members-" + index + ".csv");
+            try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                writer.write(CSV_HEADER);
+                writer.newLine();
+                Iterator<MemberTeamDto> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    writer.write(toCsv(iterator.next()));
+                    writer.newLine();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return file;
+        });
+    }
+
+    private <R> List<R> scan(int partitions, PartitionWork<R> work) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions 는 1 이상이어야 합니다. partitions = " + partitions);
+        }
+        List<long[]> ranges = idRanges(partitions);
+        if (ranges.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Callable<R>> tasks = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            int index = i;
+            long[] range = ranges.get(i);
+            tasks.add(() -> scanPartition(range[0], range[1], rows -> work.apply(index, rows)));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, tasks.size()));
+        try {
+            List<R> results = new ArrayList<>();
+            for (Future<R> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("병렬 스캔이 중단됐습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("병렬 스캔에 실패했습니다.", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * [min(id), max(id)] 를 partitions 개의 겹치지 않는 구간으로 나눈다.
+     */
+    private List<long[]> idRanges(int partitions) {
+        Tuple bounds = inReadOnlyEntityManager(em -> new JPAQueryFactory(em)
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .fetchOne());
+
+        List<long[]> ranges = new ArrayList<>();
+        if (bounds == null || bounds.get(0, Long.class) == null) {
+            return ranges;
+        }
+        long minId = bounds.get(0, Long.class);
+        long maxId = bounds.get(1, Long.class);
+        // ceil((maxId - minId + 1) / partitions), id 범위가 커도 overflow 되지 않게 나눈 뒤 더한다.
+        long size = (maxId - minId) / partitions + 1;
+        for (long from = minId; from <= maxId; from += size) {
+            ranges.add(new long[]{from, Math.min(maxId, from + size - 1)});
+        }
+        return ranges;
+    }
+
+    private <R> R scanPartition(long fromId, long toId, Function<Stream<MemberTeamDto>, R> work) {
+        return inReadOnlyEntityManager(em -> {
+            try (Stream<MemberTeamDto> rows = new JPAQueryFactory(em)
+                    .select(new QMemberTeamDto(
+                            member.id.as("memberId"),
+                            member.username,
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.id.between(fromId, toId))
+                    .orderBy(member.id.asc())
+                    .setHint(QueryHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                    .stream()) {
+                return work.apply(rows);
+            }
+        });
+    }
+
+    /**
+     * 파티션마다 커넥션을 따로 쓰도록 EntityManager 를 직접 열고, 읽기 전용 트랜잭션 안에서 실행한다.
+     */
+    private <R> R inReadOnlyEntityManager(Function<EntityManager, R> work) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.unwrap(Session.class).setDefaultReadOnly(true);
+            return work.apply(em);
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+    private static String toCsv(MemberTeamDto row) {
+        return row.getMemberId() + ","
+                + csvValue(row.getUsername()) + ","
+                + row.getAge() + ","
+                + (row.getTeamId() != null ? row.getTeamId() : "") + ","
+                + csvValue(row.getTeamName());
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    private interface PartitionWork<R> {
+        R apply(int index, Stream<MemberTeamDto> rows);
+    }
+}
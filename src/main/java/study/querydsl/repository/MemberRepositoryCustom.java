@@ -5,12 +5,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
 
 import java.util.List;
+import java.util.Map;
 
 public interface MemberRepositoryCustom {
 
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    List<Member> findByUsernameIgnoreCase(String username);
+    List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions, long limit);
+    List<Map<String, Object>> searchFields(MemberSearchCondition condition, List<String> fields, long limit);
+    Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, List<String> fields, Pageable pageable);
 }
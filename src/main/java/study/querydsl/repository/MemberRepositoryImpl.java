@@ -1,10 +1,17 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -13,8 +20,16 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.sql.SqlMemberRepository;
+import study.querydsl.support.QueryTracing;
+import study.querydsl.support.UnsupportedFieldException;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
@@ -23,11 +38,29 @@ import static study.querydsl.entity.QTeam.team;
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
+    /**
+     * fields 파라미터로 고를 수 있는 컬럼
+     * teamId 는 member 의 FK 로 조회해서 team 조인이 필요없다.
+     */
+    private static final Map<String, Expression<?>> FIELD_PATHS = Map.of(
+            "memberId", member.id,
+            "username", member.username,
+            "age", member.age,
+            "teamId", member.team.id,
+            "teamName", team.name);
+
     private final JPAQueryFactory queryFactory;
+    private final QueryTracing queryTracing;
+    // member.repository.backend=sql 이면 querydsl-sql 구현으로 위임한다.
+    private final ObjectProvider<SqlMemberRepository> sqlMemberRepository;
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
+        SqlMemberRepository sql = sqlMemberRepository.getIfAvailable();
+        if (sql != null) {
+            return sql.search(condition);
+        }
+        return queryTracing.fetch("MemberRepository.search", condition.shape(), () -> queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -41,7 +74,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
-                .fetch();
+                .fetch());
     }
 
     /**
@@ -68,7 +101,12 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory
+        SqlMemberRepository sql = sqlMemberRepository.getIfAvailable();
+        if (sql != null) {
+            return sql.searchPageSimple(condition, pageable);
+        }
+        MemberSort sort = MemberSort.of(pageable.getSort());
+        QueryResults<MemberTeamDto> results = queryTracing.fetchResults("MemberRepository.searchPageSimple", condition.shape(), () -> queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -82,9 +120,10 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
+                .orderBy(sort.toOrderSpecifiers())
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
-                .fetchResults();
+                .fetchResults());
 
         List<MemberTeamDto> content = results.getResults();
         long total = results.getTotal();
@@ -95,7 +134,13 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
+        SqlMemberRepository sql = sqlMemberRepository.getIfAvailable();
+        if (sql != null) {
+            return sql.searchPageComplex(condition, pageable);
+        }
+        MemberSort sort = MemberSort.of(pageable.getSort());
+        String shape = condition.shape();
+        List<MemberTeamDto> content = queryTracing.fetch("MemberRepository.searchPageComplex.content", shape, () -> queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -109,9 +154,10 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
+                .orderBy(sort.toOrderSpecifiers())
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
-                .fetch();
+                .fetch());
 
         //countQuery 최적화
         JPAQuery<Member> countQuery = queryFactory
@@ -126,8 +172,177 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                 );
 
 
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> queryTracing.count("MemberRepository.searchPageComplex.count", shape, countQuery::fetchCount));
 //        return new PageImpl<>(content, pageable, count);
     }
 
+    /**
+     * Spring Data 의 IgnoreCase 파생 쿼리는 upper(username) 으로 비교해서 인덱스를 못 탄다.
+     * 정규화된 username_lower 컬럼으로 조회한다.
+     */
+    @Override
+    public List<Member> findByUsernameIgnoreCase(String username) {
+        return queryFactory
+                .selectFrom(member)
+                .where(member.usernameLower.eq(Member.normalizeUsername(username)))
+                .fetch();
+    }
+
+    /**
+     * 여러 검색조건을 쿼리 한번으로 처리
+     * where 는 조건별 predicate 의 or 로 묶고, 조건마다 case when 컬럼을 하나씩 select 해서
+     * 각 row 가 어느 조건에 해당하는지 표시한 뒤 조건별 결과로 나눈다.
+     * 여러 조건에 해당하는 row 는 각 조건의 결과에 모두 들어간다.
+     * 빈 조건이 있으면 전체 row 가 대상이므로, member_id 순으로 조건 전체를 합쳐 최대 limit 개 row 만 조회한다.
+     */
+    @Override
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions, long limit) {
+        SqlMemberRepository sql = sqlMemberRepository.getIfAvailable();
+        if (sql != null) {
+            return sql.searchBatch(conditions, limit);
+        }
+        List<List<MemberTeamDto>> results = new ArrayList<>();
+        if (conditions.isEmpty()) {
+            return results;
+        }
+
+        List<Expression<?>> select = new ArrayList<>(List.of(member.id, member.username, member.age, team.id, team.name));
+        List<NumberExpression<Integer>> matches = new ArrayList<>();
+        List<Predicate> predicates = new ArrayList<>();
+        boolean matchAll = false;
+        for (MemberSearchCondition condition : conditions) {
+            BooleanExpression predicate = conditionPredicate(condition);
+            if (predicate == null) {
+                // 빈 조건은 모든 row 에 해당하니 case 컬럼이 필요없다.
+                matchAll = true;
+                matches.add(null);
+            } else {
+                NumberExpression<Integer> match = new CaseBuilder().when(predicate).then(1).otherwise(0);
+                select.add(match);
+                matches.add(match);
+                predicates.add(predicate);
+            }
+            results.add(new ArrayList<>());
+        }
+
+        List<Tuple> rows = queryFactory
+                .select(select.toArray(new Expression<?>[0]))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(matchAll ? null : ExpressionUtils.anyOf(predicates))
+                .orderBy(member.id.asc())
+                .limit(limit)
+                .fetch();
+
+        for (Tuple row : rows) {
+            MemberTeamDto dto = new MemberTeamDto(
+                    row.get(member.id),
+                    row.get(member.username),
+                    row.get(member.age),
+                    row.get(team.id),
+                    row.get(team.name));
+            for (int i = 0; i < matches.size(); i++) {
+                NumberExpression<Integer> match = matches.get(i);
+                if (match == null || Integer.valueOf(1).equals(row.get(match))) {
+                    results.get(i).add(dto);
+                }
+            }
+        }
+        return results;
+    }
+
+    private BooleanExpression conditionPredicate(MemberSearchCondition condition) {
+        return Stream.of(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .filter(Objects::nonNull)
+                .reduce(BooleanExpression::and)
+                .orElse(null);
+    }
+
+    /**
+     * 요청한 컬럼만 select 하는 검색 (sparse fieldset)
+     * teamName 을 조회하거나 teamName 으로 검색할 때만 team 을 조인한다.
+     */
+    @Override
+    public List<Map<String, Object>> searchFields(MemberSearchCondition condition, List<String> fields, long limit) {
+        SqlMemberRepository sql = sqlMemberRepository.getIfAvailable();
+        if (sql != null) {
+            return sql.searchFields(condition, fields, limit);
+        }
+        List<Tuple> rows = fieldsQuery(condition, fields)
+                .orderBy(member.id.asc())
+                .limit(limit)
+                .fetch();
+        return toFieldMaps(rows, fields);
+    }
+
+    @Override
+    public Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, List<String> fields, Pageable pageable) {
+        SqlMemberRepository sql = sqlMemberRepository.getIfAvailable();
+        if (sql != null) {
+            return sql.searchPageFields(condition, fields, pageable);
+        }
+        MemberSort sort = MemberSort.of(pageable.getSort());
+        List<Tuple> rows = fieldsQuery(condition, fields)
+                .orderBy(sort.toOrderSpecifiers())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member);
+        if (hasText(condition.getTeamName())) {
+            countQuery.leftJoin(member.team, team);
+        }
+        countQuery.where(
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()));
+
+        return PageableExecutionUtils.getPage(toFieldMaps(rows, fields), pageable, countQuery::fetchOne);
+    }
+
+    private JPAQuery<Tuple> fieldsQuery(MemberSearchCondition condition, List<String> fields) {
+        Expression<?>[] select = fields.stream()
+                .map(this::fieldPath)
+                .toArray(Expression<?>[]::new);
+
+        JPAQuery<Tuple> query = queryFactory
+                .select(select)
+                .from(member);
+        if (fields.contains("teamName") || hasText(condition.getTeamName())) {
+            query.leftJoin(member.team, team);
+        }
+        return query.where(
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()));
+    }
+
+    private Expression<?> fieldPath(String field) {
+        Expression<?> path = FIELD_PATHS.get(field);
+        if (path == null) {
+            throw new UnsupportedFieldException("지원하지 않는 필드입니다. field = " + field);
+        }
+        return path;
+    }
+
+    private List<Map<String, Object>> toFieldMaps(List<Tuple> rows, List<String> fields) {
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                values.put(fields.get(i), row.get(i, Object.class));
+            }
+            result.add(values);
+        }
+        return result;
+    }
 }
@@ -0,0 +1,103 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import org.springframework.data.domain.Sort;
+import study.querydsl.support.UnsupportedSortException;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 회원 검색 정렬 (Pageable 의 sort)
+ * 인덱스가 있는 정렬만 허용한다. 정렬 컬럼 하나 + 같은 방향의 memberId 만 가능하고,
+ * memberId 는 따로 지정하지 않아도 마지막에 붙여서 같은 값끼리도 순서가 고정되게 한다.
+ *
+ * username -> idx_member_username (username, member_id)
+ * age      -> idx_member_age (age, member_id)
+ * memberId -> PK
+ * teamName 은 team 조인 너머의 컬럼이라 (team.name, member.member_id) 를 한 인덱스로 읽을 수 없어서 거절한다.
+ */
+public final class MemberSort {
+
+    public static final String MEMBER_ID = "memberId";
+
+    private static final Map<String, ComparableExpressionBase<?>> PATHS = Map.of(
+            MEMBER_ID, member.id,
+            "username", member.username,
+            "age", member.age);
+
+    private static final MemberSort BY_MEMBER_ID = new MemberSort(MEMBER_ID, Sort.Direction.ASC);
+
+    private final String property;
+    private final Sort.Direction direction;
+
+    private MemberSort(String property, Sort.Direction direction) {
+        this.property = property;
+        this.direction = direction;
+    }
+
+    /**
+     * 정렬이 없으면 memberId 오름차순
+     * @throws UnsupportedSortException 인덱스로 정렬할 수 없는 sort
+     */
+    public static MemberSort of(Sort sort) {
+        Iterator<Sort.Order> orders = sort.iterator();
+        if (!orders.hasNext()) {
+            return BY_MEMBER_ID;
+        }
+        Sort.Order first = checked(orders.next());
+        MemberSort result = new MemberSort(first.getProperty(), first.getDirection());
+        if (orders.hasNext()) {
+            Sort.Order second = checked(orders.next());
+            if (result.isByMemberId() || !MEMBER_ID.equals(second.getProperty())
+                    || second.getDirection() != first.getDirection() || orders.hasNext()) {
+                throw new UnsupportedSortException("정렬 컬럼 하나와 같은 방향의 memberId 만 지정할 수 있습니다. sort = " + sort);
+            }
+        }
+        return result;
+    }
+
+    private static Sort.Order checked(Sort.Order order) {
+        if (!PATHS.containsKey(order.getProperty())) {
+            throw new UnsupportedSortException("지원하지 않는 정렬입니다. property = " + order.getProperty()
+                    + ", 가능한 값 = " + PATHS.keySet());
+        }
+        if (order.isIgnoreCase()) {
+            throw new UnsupportedSortException("대소문자 무시 정렬은 지원하지 않습니다. property = " + order.getProperty());
+        }
+        return order;
+    }
+
+    private boolean isByMemberId() {
+        return MEMBER_ID.equals(property);
+    }
+
+    /**
+     * QMember/QTeam 기준 order by 절
+     */
+    public OrderSpecifier<?>[] toOrderSpecifiers() {
+        return toOrderSpecifiers(PATHS);
+    }
+
+    /**
+     * order by 절. paths 는 정렬 이름 -> 컬럼 (querydsl-sql 의 SMember/STeam 등)
+     */
+    public OrderSpecifier<?>[] toOrderSpecifiers(Map<String, ? extends ComparableExpressionBase<?>> paths) {
+        if (isByMemberId()) {
+            return new OrderSpecifier<?>[]{orderOf(paths.get(MEMBER_ID))};
+        }
+        return new OrderSpecifier<?>[]{orderOf(paths.get(property)), orderOf(paths.get(MEMBER_ID))};
+    }
+
+    private OrderSpecifier<?> orderOf(ComparableExpressionBase<?> path) {
+        return direction.isAscending() ? path.asc() : path.desc();
+    }
+
+    @Override
+    public String toString() {
+        return property + ": " + direction;
+    }
+}
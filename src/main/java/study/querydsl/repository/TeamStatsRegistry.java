@@ -0,0 +1,74 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.TeamStatsListener;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀별 나이 통계(count/sum/min/max) 조회
+ * /teams/stats 가 팀마다 group by 를 실행하지 않고, team 테이블에 미리 계산해둔 컬럼을 읽는다.
+ * 값은 TeamStatsListener 가 회원 insert/update/delete 트랜잭션의 커밋 직전에 DB 에서 갱신하므로 노드끼리 같다.
+ * bulk 연산은 QueryDslConfig 가 대상 팀을 다시 센다. 어긋났다고 의심되면 rebuild() 로 전체를 다시 센다.
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamStatsRegistry {
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityManager em;
+
+    @Transactional
+    public void rebuild() {
+        TeamStatsListener.recountAll(em);
+    }
+
+    /**
+     * 회원이 있는 팀의 통계 (팀 id 순)
+     */
+    public List<TeamStatsDto> findAll() {
+        return statsQuery()
+                .where(team.memberCount.gt(0))
+                .orderBy(team.id.asc())
+                .fetch()
+                .stream()
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 회원이 없는 팀이면 null
+     */
+    public TeamStatsDto findByTeamId(Long teamId) {
+        Tuple row = statsQuery()
+                .where(team.id.eq(teamId),
+                        team.memberCount.gt(0))
+                .fetchOne();
+        return row != null ? toDto(row) : null;
+    }
+
+    private JPAQuery<Tuple> statsQuery() {
+        return queryFactory
+                .select(team.id, team.memberCount, team.ageSum, team.ageMin, team.ageMax)
+                .from(team);
+    }
+
+    private TeamStatsDto toDto(Tuple row) {
+        return new TeamStatsDto(
+                row.get(team.id),
+                row.get(team.memberCount),
+                row.get(team.ageSum),
+                row.get(team.ageMin),
+                row.get(team.ageMax));
+    }
+}
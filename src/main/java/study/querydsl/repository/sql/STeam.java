@@ -0,0 +1,47 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.PrimaryKey;
+import com.querydsl.sql.RelationalPathBase;
+
+import java.sql.Types;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+/**
+ * team 테이블 (querydsl-sql)
+ * querydsl-sql-codegen 이 H2 스키마로 만드는 코드와 같은 형태다. Team 엔티티 매핑이 바뀌면 함께 바꿔야한다.
+ */
+public class STeam extends RelationalPathBase<STeam> {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final STeam team = new STeam("team");
+
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+    public final StringPath name = createString("name");
+
+    public final NumberPath<Integer> memberCount = createNumber("memberCount", Integer.class);
+
+    public final PrimaryKey<STeam> primary = createPrimaryKey(teamId);
+
+    public STeam(String variable) {
+        super(STeam.class, forVariable(variable), "PUBLIC", "TEAM");
+        addMetadata();
+    }
+
+    public STeam(PathMetadata metadata) {
+        super(STeam.class, metadata, "PUBLIC", "TEAM");
+        addMetadata();
+    }
+
+    public void addMetadata() {
+        addMetadata(teamId, ColumnMetadata.named("TEAM_ID").withIndex(1).ofType(Types.BIGINT).withSize(64).notNull());
+        addMetadata(memberCount, ColumnMetadata.named("MEMBER_COUNT").withIndex(2).ofType(Types.INTEGER).withSize(32).notNull());
+        addMetadata(name, ColumnMetadata.named("NAME").withIndex(3).ofType(Types.VARCHAR).withSize(255));
+    }
+}
@@ -0,0 +1,290 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.MemberSort;
+import study.querydsl.support.QueryDeadline;
+import study.querydsl.support.QueryTracing;
+import study.querydsl.support.UnsupportedFieldException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * querydsl-sql 로 구현한 회원 검색 (member.repository.backend=sql 일 때 MemberRepositoryImpl 이 위임한다)
+ * DTO 조회는 JPQL 변환, 엔티티 메타모델 없이 JDBC 로 바로 실행한다.
+ * 엔티티를 돌려주는 findByUsernameIgnoreCase 만 JPA 로 조회한다.
+ * JPQL 의 자동 flush 대신 QuerydslSqlConfig 가 쓰기 트랜잭션에서 쿼리 전에 flush 한다.
+ * 측정해보면 row 가 많은 검색은 JPA 보다 시간/할당이 적지만, 작은 페이지는 시간이 비슷하고 SQL 을 매번 만들어서 할당은 더 많다.
+ * (SqlMemberRepositoryBenchmarkTest)
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "member.repository.backend", havingValue = "sql")
+public class SqlMemberRepository implements MemberRepositoryCustom {
+
+    private static final Map<String, Expression<?>> FIELD_PATHS = Map.of(
+            "memberId", member.memberId,
+            "username", member.username,
+            "age", member.age,
+            "teamId", member.teamId,
+            "teamName", team.name);
+
+    private static final Map<String, ComparableExpressionBase<?>> SORT_PATHS = Map.of(
+            MemberSort.MEMBER_ID, member.memberId,
+            "username", member.username,
+            "age", member.age);
+
+    private final SQLQueryFactory sqlQueryFactory;
+    private final JPAQueryFactory queryFactory;
+    private final QueryTracing queryTracing;
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return queryTracing.fetch("SqlMemberRepository.search", condition.shape(), () -> searchQuery(condition).fetch());
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        MemberSort sort = MemberSort.of(pageable.getSort());
+        List<MemberTeamDto> content = searchQuery(condition)
+                .orderBy(sort.toOrderSpecifiers(SORT_PATHS))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+        long total = countQuery(condition).fetchOne();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        MemberSort sort = MemberSort.of(pageable.getSort());
+        String shape = condition.shape();
+        List<MemberTeamDto> content = queryTracing.fetch("SqlMemberRepository.searchPageComplex.content", shape, () -> searchQuery(condition)
+                .orderBy(sort.toOrderSpecifiers(SORT_PATHS))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch());
+
+        SQLQuery<Long> countQuery = countQuery(condition);
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> queryTracing.count("SqlMemberRepository.searchPageComplex.count", shape, countQuery::fetchOne));
+    }
+
+    /**
+     * 엔티티를 돌려줘야 하므로 JPA 로 조회한다.
+     */
+    @Override
+    public List<Member> findByUsernameIgnoreCase(String username) {
+        return queryFactory
+                .selectFrom(QMember.member)
+                .where(QMember.member.usernameLower.eq(Member.normalizeUsername(username)))
+                .fetch();
+    }
+
+    @Override
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions, long limit) {
+        List<List<MemberTeamDto>> results = new ArrayList<>();
+        if (conditions.isEmpty()) {
+            return results;
+        }
+
+        List<Expression<?>> select = new ArrayList<>(List.of(member.memberId, member.username, member.age, team.teamId, team.name));
+        List<NumberExpression<Integer>> matches = new ArrayList<>();
+        List<Predicate> predicates = new ArrayList<>();
+        boolean matchAll = false;
+        for (MemberSearchCondition condition : conditions) {
+            BooleanExpression predicate = conditionPredicate(condition);
+            if (predicate == null) {
+                matchAll = true;
+                matches.add(null);
+            } else {
+                NumberExpression<Integer> match = new CaseBuilder().when(predicate).then(1).otherwise(0);
+                select.add(match);
+                matches.add(match);
+                predicates.add(predicate);
+            }
+            results.add(new ArrayList<>());
+        }
+
+        List<Tuple> rows = withDeadline(sqlQueryFactory
+                .select(select.toArray(new Expression<?>[0]))
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.teamId))
+                .where(matchAll ? null : ExpressionUtils.anyOf(predicates))
+                .orderBy(member.memberId.asc())
+                .limit(limit))
+                .fetch();
+
+        for (Tuple row : rows) {
+            MemberTeamDto dto = new MemberTeamDto(
+                    row.get(member.memberId),
+                    row.get(member.username),
+                    row.get(member.age),
+                    row.get(team.teamId),
+                    row.get(team.name));
+            for (int i = 0; i < matches.size(); i++) {
+                NumberExpression<Integer> match = matches.get(i);
+                if (match == null || Integer.valueOf(1).equals(row.get(match))) {
+                    results.get(i).add(dto);
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public List<Map<String, Object>> searchFields(MemberSearchCondition condition, List<String> fields, long limit) {
+        List<Tuple> rows = fieldsQuery(condition, fields)
+                .orderBy(member.memberId.asc())
+                .limit(limit)
+                .fetch();
+        return toFieldMaps(rows, fields);
+    }
+
+    @Override
+    public Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, List<String> fields, Pageable pageable) {
+        MemberSort sort = MemberSort.of(pageable.getSort());
+        List<Tuple> rows = fieldsQuery(condition, fields)
+                .orderBy(sort.toOrderSpecifiers(SORT_PATHS))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+        SQLQuery<Long> countQuery = countQuery(condition);
+        return PageableExecutionUtils.getPage(toFieldMaps(rows, fields), pageable, countQuery::fetchOne);
+    }
+
+    private SQLQuery<MemberTeamDto> searchQuery(MemberSearchCondition condition) {
+        return withDeadline(sqlQueryFactory
+                .select(new QMemberTeamDto(
+                        member.memberId,
+                        member.username,
+                        member.age,
+                        team.teamId,
+                        team.name))
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.teamId))
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())));
+    }
+
+    /**
+     * teamName 으로 검색할 때만 team 을 조인한다.
+     */
+    private SQLQuery<Long> countQuery(MemberSearchCondition condition) {
+        SQLQuery<Long> query = sqlQueryFactory
+                .select(member.memberId.count())
+                .from(member);
+        if (hasText(condition.getTeamName())) {
+            query.leftJoin(team).on(member.teamId.eq(team.teamId));
+        }
+        return withDeadline(query.where(
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())));
+    }
+
+    private SQLQuery<Tuple> fieldsQuery(MemberSearchCondition condition, List<String> fields) {
+        Expression<?>[] select = fields.stream()
+                .map(this::fieldPath)
+                .toArray(Expression<?>[]::new);
+
+        SQLQuery<Tuple> query = sqlQueryFactory
+                .select(select)
+                .from(member);
+        if (fields.contains("teamName") || hasText(condition.getTeamName())) {
+            query.leftJoin(team).on(member.teamId.eq(team.teamId));
+        }
+        return withDeadline(query.where(
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())));
+    }
+
+    private <T> SQLQuery<T> withDeadline(SQLQuery<T> query) {
+        QueryDeadline.applyTo(query);
+        return query;
+    }
+
+    private BooleanExpression conditionPredicate(MemberSearchCondition condition) {
+        return Stream.of(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .filter(Objects::nonNull)
+                .reduce(BooleanExpression::and)
+                .orElse(null);
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private Expression<?> fieldPath(String field) {
+        Expression<?> path = FIELD_PATHS.get(field);
+        if (path == null) {
+            throw new UnsupportedFieldException("지원하지 않는 필드입니다. field = " + field);
+        }
+        return path;
+    }
+
+    private List<Map<String, Object>> toFieldMaps(List<Tuple> rows, List<String> fields) {
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                values.put(fields.get(i), row.get(i, Object.class));
+            }
+            result.add(values);
+        }
+        return result;
+    }
+}
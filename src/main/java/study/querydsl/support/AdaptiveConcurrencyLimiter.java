@@ -0,0 +1,66 @@
+package study.querydsl.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 응답시간을 보고 동시 실행 수 한도를 조절하는 AIMD 리미터
+ * 임계 응답시간 안에 끝나면 한도를 조금씩(1/limit) 늘리고,
+ * 느려지거나 실패하면 backoffRatio 만큼 곱해서 줄인다.
+ * 한도를 넘는 요청은 대기시키지 않고 바로 거절한다.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdMillis, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param latencyNanos 요청 처리 시간
+     * @param dropped      타임아웃, 503 처럼 과부하로 실패한 요청인지
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        int inflightBeforeRelease = inflight.getAndDecrement();
+        synchronized (this) {
+            if (dropped || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inflightBeforeRelease * 2 >= limit) {
+                // 한도의 절반도 못 쓰고 있을 때는 늘리지 않는다.
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
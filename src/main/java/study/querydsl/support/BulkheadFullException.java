@@ -0,0 +1,15 @@
+package study.querydsl.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * DB 작업 대기열이 가득 찼을 때 바로 503 으로 응답한다.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 엔드포인트(요청 매핑 패턴)마다 AdaptiveConcurrencyLimiter 를 두고 한도를 넘는 요청은 429 로 거절한다.
+ * 5xx 응답(데드라인 초과, bulkhead 거절)은 과부하 신호로 보고 한도를 줄인다.
+ */
+@Component
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+    private final MeterRegistry meterRegistry;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdMillis;
+    private final double backoffRatio;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitInterceptor(MeterRegistry meterRegistry,
+                                       @Value("${member.limiter.initial-limit:20}") int initialLimit,
+                                       @Value("${member.limiter.min-limit:1}") int minLimit,
+                                       @Value("${member.limiter.max-limit:200}") int maxLimit,
+                                       @Value("${member.limiter.latency-threshold-ms:500}") long latencyThresholdMillis,
+                                       @Value("${member.limiter.backoff-ratio:0.9}") double backoffRatio) {
+        this.meterRegistry = meterRegistry;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdMillis = latencyThresholdMillis;
+        this.backoffRatio = backoffRatio;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String endpoint = endpoint(request);
+        AdaptiveConcurrencyLimiter limiter = limiters.computeIfAbsent(endpoint, this::createLimiter);
+        if (!limiter.tryAcquire()) {
+            meterRegistry.counter("member.limiter.rejected", "endpoint", endpoint).increment();
+            throw new LimitExceededException("동시 요청 한도를 초과했습니다. endpoint = " + endpoint);
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(limiter, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object permit = request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit instanceof Permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            ((Permit) permit).release(ex != null || response.getStatus() >= 500);
+        }
+    }
+
+    private String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : request.getRequestURI();
+    }
+
+    private AdaptiveConcurrencyLimiter createLimiter(String endpoint) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                initialLimit, minLimit, maxLimit, latencyThresholdMillis, backoffRatio);
+        Tags tags = Tags.of("endpoint", endpoint);
+        meterRegistry.gauge("member.limiter.limit", tags, limiter, AdaptiveConcurrencyLimiter::getLimit);
+        meterRegistry.gauge("member.limiter.inflight", tags, limiter, AdaptiveConcurrencyLimiter::getInflight);
+        return limiter;
+    }
+
+    private static final class Permit {
+
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final long startedAt;
+
+        private Permit(AdaptiveConcurrencyLimiter limiter, long startedAt) {
+            this.limiter = limiter;
+            this.startedAt = startedAt;
+        }
+
+        private void release(boolean dropped) {
+            limiter.release(System.nanoTime() - startedAt, dropped);
+        }
+    }
+}
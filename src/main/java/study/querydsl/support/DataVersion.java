@@ -0,0 +1,125 @@
+package study.querydsl.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.DataVersionCounter;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static study.querydsl.entity.QDataVersionCounter.dataVersionCounter;
+
+/**
+ * Member/Team 데이터 버전
+ * 엔티티 insert/update/delete(DataVersionListener)와 bulk update/delete(QueryDslConfig)가 있는 트랜잭션마다 한번 올라간다.
+ * 버전이 같으면 검색 결과도 같다고 보고 ETag 를 만드는데 쓴다.
+ *
+ * 버전은 DB 의 data_version row 에 두고, 쓰는 트랜잭션 안에서 커밋 직전(flush 후)에 올린다.
+ * 그래서 같은 DB 를 쓰는 노드끼리 버전이 같고, 롤백되면 올라가지 않는다.
+ * 버전을 올린 트랜잭션은 커밋할 때까지 row lock 을 잡고 있으므로 버전 순서가 커밋 순서와 같다. (MemberChangeLog 가 이용)
+ *
+ * 대신 회원/팀을 쓰는 모든 트랜잭션이 이 row 하나에서 줄을 선다. (모든 노드 합쳐서)
+ * lock 은 버전을 올린 뒤 member_change insert 와 커밋(DB 로그 fsync)이 끝날 때까지 잡히므로,
+ * 쓰기 처리량은 대략 1 / (그 시간) 트랜잭션/초를 넘지 못한다. ex) 커밋 2ms 면 초당 500 트랜잭션
+ * 트랜잭션 안의 변경 수와는 상관없으니, 많은 쓰기는 트랜잭션 하나로 묶는다. (MemberAgeWriteBehind, MemberIngestor 의 chunk)
+ * 버전을 파티션별로 나누면 since 하나로 빠짐없이 읽을 수 없어서 MemberChangeLog 소비자가 버전 벡터를 들고 있어야 한다.
+ *
+ * 처음 row 를 만들 때는 재시작 전에 발급한 ETag 와 겹치지 않게 현재 시각(ms)부터 시작한다.
+ */
+@Component
+public class DataVersion {
+
+    private static final Long ROW_ID = 1L;
+    private static final String INCREMENT_SQL = "update data_version set version = version + 1 where id = ?";
+    private static final String SELECT_SQL = "select version from data_version where id = ?";
+
+    private final EntityManager em;
+    // 버전을 올릴 트랜잭션의 세션 -> 커밋될 버전 (커밋 직전에 정해진다)
+    private final Map<SharedSessionContractImplementor, long[]> committing = new ConcurrentHashMap<>();
+
+    public DataVersion(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        // @Lazy 로 주입받은 리스너가 flush 중에 처음 꺼낼 수 있어서, 그 트랜잭션에 참여하지 않고 따로 만든다.
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        createRowIfAbsent(transactionTemplate);
+    }
+
+    public long current() {
+        Long version = new JPAQuery<>(em)
+                .select(dataVersionCounter.version)
+                .from(dataVersionCounter)
+                .where(dataVersionCounter.id.eq(ROW_ID))
+                .fetchOne();
+        return version != null ? version : 0;
+    }
+
+    /**
+     * 지금 트랜잭션이 커밋될 때 버전을 한번 올린다. 트랜잭션 밖에서는 JPA 쓰기가 없으니 무시한다.
+     */
+    public void bump() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        committing.computeIfAbsent(session, key -> register(session));
+    }
+
+    /**
+     * 커밋 직전에 올린 이 트랜잭션의 버전. bump() 후에 등록한 BeforeTransactionCompletionProcess 에서만 쓸 수 있다.
+     */
+    public long committingVersion(SharedSessionContractImplementor session) {
+        long[] version = committing.get(session);
+        if (version == null || version[0] == 0) {
+            throw new IllegalStateException("버전을 올리지 않은 트랜잭션입니다.");
+        }
+        return version[0];
+    }
+
+    private long[] register(SessionImplementor session) {
+        long[] version = new long[1];
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> version[0] = increment(s));
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> committing.remove(s));
+        return version;
+    }
+
+    private long increment(SessionImplementor session) {
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(INCREMENT_SQL)) {
+                update.setLong(1, ROW_ID);
+                update.executeUpdate();
+            }
+            try (PreparedStatement select = connection.prepareStatement(SELECT_SQL)) {
+                select.setLong(1, ROW_ID);
+                try (ResultSet rs = select.executeQuery()) {
+                    rs.next();
+                    return rs.getLong(1);
+                }
+            }
+        });
+    }
+
+    private void createRowIfAbsent(TransactionTemplate transactionTemplate) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (em.find(DataVersionCounter.class, ROW_ID) == null) {
+                    em.persist(new DataVersionCounter(ROW_ID, System.currentTimeMillis()));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // 다른 노드가 먼저 만들었다.
+        }
+    }
+}
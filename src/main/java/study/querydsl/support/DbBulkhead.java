@@ -0,0 +1,75 @@
+package study.querydsl.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * DB 작업 전용 bulkhead
+ * 느린 검색이 톰캣 요청 스레드를 붙잡지 않도록 repository 작업을 별도 스레드풀에서 실행한다.
+ * 스레드 수는 커넥션 풀 크기에 맞추고, 대기열이 가득 차면 기다리지 않고 바로 거절한다.
+ */
+@Component
+public class DbBulkhead implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+    private final Timer queueWaitTimer;
+    private final Timer executionTimer;
+    private final Counter rejectedCounter;
+
+    public DbBulkhead(MeterRegistry meterRegistry,
+                      @Value("${member.bulkhead.pool-size:${spring.datasource.hikari.maximum-pool-size:10}}") int poolSize,
+                      @Value("${member.bulkhead.queue-capacity:100}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("db-bulkhead-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.queueWaitTimer = meterRegistry.timer("db.bulkhead.queue.wait");
+        this.executionTimer = meterRegistry.timer("db.bulkhead.execution");
+        this.rejectedCounter = meterRegistry.counter("db.bulkhead.rejected");
+        meterRegistry.gauge("db.bulkhead.queue.size", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("db.bulkhead.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    /**
+     * 대기열이 가득 찼으면 BulkheadFullException 을 바로 던진다.
+     * 요청 스레드의 쿼리 데드라인은 작업 스레드로 넘겨준다.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        long enqueuedAt = System.nanoTime();
+        Long deadline = QueryDeadline.capture();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startedAt = System.nanoTime();
+                queueWaitTimer.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+                QueryDeadline.restore(deadline);
+                try {
+                    return work.get();
+                } finally {
+                    QueryDeadline.clear();
+                    executionTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new BulkheadFullException("DB 작업 대기열이 가득 찼습니다.", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
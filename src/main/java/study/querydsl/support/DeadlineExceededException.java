@@ -0,0 +1,11 @@
+package study.querydsl.support;
+
+/**
+ * 요청 데드라인이 지나서 쿼리를 실행하지 않았거나 취소됐을 때
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,314 @@
+package study.querydsl.support;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Visitor;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 리플렉션 없이 DTO 를 채우는 Projections.bean/fields/constructor
+ * 생성자/setter 는 LambdaMetafactory 로 만든 람다로, private 필드와 생성자 인자는 MethodHandle 로 접근한다.
+ * 접근자는 DTO 클래스마다 처음 한번만 만들어 캐시하고, row 마다는 만들어둔 람다만 호출한다.
+ * row 변환(newInstance)만 재면 Projections 보다 bean 2배, constructor 2.9배, fields 1.3배 빠르다. (FastProjectionsBenchmarkTest)
+ * 변환은 row 당 수십 ns 라서 DB 조회가 있는 전체 쿼리 시간에서는 차이가 작다.
+ *
+ * ex) queryFactory.select(FastProjections.bean(MemberDto.class, member.username, member.age))
+ * 이름 규칙은 Projections 와 같다. (경로 이름이나 as() 로 준 별칭, null 값은 setter 를 호출하지 않는다)
+ */
+public final class FastProjections {
+
+    private static final ClassValue<Accessors> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Accessors computeValue(Class<?> type) {
+            return new Accessors(type);
+        }
+    };
+
+    private FastProjections() {
+    }
+
+    /**
+     * 기본 생성자 + setter
+     */
+    public static <T> FactoryExpression<T> bean(Class<T> type, Expression<?>... exprs) {
+        Accessors accessors = ACCESSORS.get(type);
+        BiConsumer<Object, Object>[] writers = writers(exprs, accessors::setter);
+        return new Bean<>(type, accessors.noArgsConstructor(), writers, exprs);
+    }
+
+    /**
+     * 기본 생성자 + 필드 직접 대입 (private 필드도 가능)
+     */
+    public static <T> FactoryExpression<T> fields(Class<T> type, Expression<?>... exprs) {
+        Accessors accessors = ACCESSORS.get(type);
+        BiConsumer<Object, Object>[] writers = writers(exprs, accessors::fieldSetter);
+        return new Bean<>(type, accessors.noArgsConstructor(), writers, exprs);
+    }
+
+    /**
+     * 인자 타입이 맞는 public 생성자
+     */
+    public static <T> FactoryExpression<T> constructor(Class<T> type, Expression<?>... exprs) {
+        Class<?>[] argTypes = Arrays.stream(exprs).map(Expression::getType).toArray(Class<?>[]::new);
+        MethodHandle constructor = ACCESSORS.get(type).constructor(argTypes);
+        return new ConstructorProjection<>(type, constructor, exprs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object>[] writers(Expression<?>[] exprs,
+                                                        Function<String, BiConsumer<Object, Object>> lookup) {
+        BiConsumer<Object, Object>[] writers = new BiConsumer[exprs.length];
+        for (int i = 0; i < exprs.length; i++) {
+            writers[i] = lookup.apply(propertyName(exprs[i]));
+        }
+        return writers;
+    }
+
+    private static String propertyName(Expression<?> expr) {
+        if (expr instanceof Path) {
+            return ((Path<?>) expr).getMetadata().getName();
+        }
+        if (expr instanceof Operation && ((Operation<?>) expr).getOperator() == Ops.ALIAS) {
+            return propertyName(((Operation<?>) expr).getArg(1));
+        }
+        throw new IllegalArgumentException("별칭이 없는 표현식입니다. as() 로 이름을 지정하세요. expr = " + expr);
+    }
+
+    private static final class Bean<T> extends FactoryExpressionBase<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Supplier<Object> constructor;
+        private final transient BiConsumer<Object, Object>[] writers;
+        private final List<Expression<?>> args;
+
+        private Bean(Class<? extends T> type, Supplier<Object> constructor,
+                     BiConsumer<Object, Object>[] writers, Expression<?>[] args) {
+            super(type);
+            this.constructor = constructor;
+            this.writers = writers;
+            this.args = List.of(args);
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T newInstance(Object... values) {
+            Object instance = constructor.get();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    writers[i].accept(instance, values[i]);
+                }
+            }
+            return (T) instance;
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+    }
+
+    private static final class ConstructorProjection<T> extends FactoryExpressionBase<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        // (Object[])Object 형태로 맞춰둔 생성자
+        private final transient MethodHandle constructor;
+        private final List<Expression<?>> args;
+
+        private ConstructorProjection(Class<? extends T> type, MethodHandle constructor, Expression<?>[] args) {
+            super(type);
+            this.constructor = constructor;
+            this.args = List.of(args);
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T newInstance(Object... values) {
+            try {
+                return (T) (Object) constructor.invokeExact(values);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(getType().getName() + " 생성에 실패했습니다.", e);
+            }
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+    }
+
+    /**
+     * DTO 클래스 하나의 생성자/setter/필드 접근자 캐시
+     */
+    private static final class Accessors {
+
+        private final Class<?> type;
+        private final Map<String, BiConsumer<Object, Object>> setters = new ConcurrentHashMap<>();
+        private final Map<String, BiConsumer<Object, Object>> fieldSetters = new ConcurrentHashMap<>();
+        private final Map<List<Class<?>>, MethodHandle> constructors = new ConcurrentHashMap<>();
+        private volatile Supplier<Object> noArgsConstructor;
+
+        private Accessors(Class<?> type) {
+            this.type = type;
+        }
+
+        private Supplier<Object> noArgsConstructor() {
+            Supplier<Object> result = noArgsConstructor;
+            if (result == null) {
+                result = createNoArgsConstructor();
+                noArgsConstructor = result;
+            }
+            return result;
+        }
+
+        private BiConsumer<Object, Object> setter(String property) {
+            return setters.computeIfAbsent(property, this::createSetter);
+        }
+
+        private BiConsumer<Object, Object> fieldSetter(String field) {
+            return fieldSetters.computeIfAbsent(field, this::createFieldSetter);
+        }
+
+        private MethodHandle constructor(Class<?>[] argTypes) {
+            return constructors.computeIfAbsent(List.of(argTypes), this::createConstructor);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Supplier<Object> createNoArgsConstructor() {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle impl = lookup.findConstructor(type, MethodType.methodType(void.class));
+                CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                        MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class),
+                        impl,
+                        MethodType.methodType(type));
+                return (Supplier<Object>) site.getTarget().invoke();
+            } catch (Throwable e) {
+                throw new IllegalArgumentException(type.getName() + " 에 public 기본 생성자가 없습니다.", e);
+            }
+        }
+
+        /**
+         * public setter 는 LambdaMetafactory 로 BiConsumer 를 만든다. 래퍼 타입 값은 람다가 언박싱한다.
+         */
+        @SuppressWarnings("unchecked")
+        private BiConsumer<Object, Object> createSetter(String property) {
+            String setterName = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+            Method setter = Arrays.stream(type.getMethods())
+                    .filter(method -> method.getName().equals(setterName) && method.getParameterCount() == 1)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(type.getName() + " 에 setter 가 없습니다. property = " + property));
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle impl = lookup.unreflect(setter);
+                Class<?> valueType = MethodType.methodType(setter.getParameterTypes()[0]).wrap().returnType();
+                CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        impl,
+                        MethodType.methodType(void.class, type, valueType));
+                return (BiConsumer<Object, Object>) site.getTarget().invoke();
+            } catch (Throwable e) {
+                throw new IllegalStateException(type.getName() + "." + setterName + " 접근자를 만들지 못했습니다.", e);
+            }
+        }
+
+        /**
+         * 필드는 람다로 만들 수 없으니 private 접근 가능한 MethodHandle setter 를 쓴다.
+         */
+        private BiConsumer<Object, Object> createFieldSetter(String fieldName) {
+            Field field = findField(fieldName);
+            MethodHandle handle;
+            try {
+                handle = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup())
+                        .unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(type.getName() + "." + fieldName + " 접근자를 만들지 못했습니다.", e);
+            }
+            return (instance, value) -> {
+                try {
+                    handle.invokeExact(instance, value);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        }
+
+        private Field findField(String fieldName) {
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (field.getName().equals(fieldName) && !Modifier.isStatic(field.getModifiers())) {
+                        return field;
+                    }
+                }
+            }
+            throw new IllegalArgumentException(type.getName() + " 에 필드가 없습니다. field = " + fieldName);
+        }
+
+        private MethodHandle createConstructor(List<Class<?>> argTypes) {
+            for (Constructor<?> candidate : type.getConstructors()) {
+                if (matches(candidate.getParameterTypes(), argTypes)) {
+                    try {
+                        return MethodHandles.lookup()
+                                .unreflectConstructor(candidate)
+                                .asType(MethodType.genericMethodType(argTypes.size()))
+                                .asSpreader(Object[].class, argTypes.size());
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(type.getName() + " 생성자 접근자를 만들지 못했습니다.", e);
+                    }
+                }
+            }
+            throw new IllegalArgumentException(type.getName() + " 에 맞는 생성자가 없습니다. args = " + argTypes);
+        }
+
+        private static boolean matches(Class<?>[] parameterTypes, List<Class<?>> argTypes) {
+            if (parameterTypes.length != argTypes.size()) {
+                return false;
+            }
+            for (int i = 0; i < parameterTypes.length; i++) {
+                Class<?> parameterType = MethodType.methodType(parameterTypes[i]).wrap().returnType();
+                if (!parameterType.isAssignableFrom(argTypes.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.support;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * /actuator/jfr
+ * 기본으로 노출하지 않는다. (application.yml 의 management.endpoints.web.exposure 참고)
+ * GET  : 진행 중인 JFR 기록을 .jfr 파일로 내려준다. 기록 중이 아니면 404 (JDK Mission Control 로 열어서 RepositoryQuery 이벤트를 본다)
+ * POST : 기록을 시작한다. -XX:StartFlightRecording 없이 띄운 경우에 사용한다. maxAgeSeconds 기본 600초
+ */
+@Slf4j
+@Component
+@Endpoint(id = "jfr")
+public class JfrEndpoint {
+
+    private static final String RECORDING_NAME = "querydsl";
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> dump() {
+        if (!FlightRecorder.isAvailable() || FlightRecorder.getFlightRecorder().getRecordings().isEmpty()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            Path file = Files.createTempFile("querydsl-", ".jfr");
+            try {
+                snapshot.dump(file);
+                return new WebEndpointResponse<>(new TempFileResource(file));
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @WriteOperation
+    public synchronized String start(@Nullable Long maxAgeSeconds) {
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("JFR 을 사용할 수 없는 JVM 입니다.");
+        }
+        boolean running = FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .anyMatch(recording -> RECORDING_NAME.equals(recording.getName()));
+        if (running) {
+            return "already recording";
+        }
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName(RECORDING_NAME);
+            recording.setMaxAge(Duration.ofSeconds(maxAgeSeconds != null ? maxAgeSeconds : 600));
+            recording.setToDisk(true);
+            recording.enable(RepositoryQueryEvent.class);
+            recording.start();
+            log.info("JFR 기록 시작. maxAge = {}", recording.getMaxAge());
+            return "started";
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("JFR 설정을 읽을 수 없습니다.", e);
+        }
+    }
+
+    /**
+     * 덤프 파일을 메모리에 올리지 않고 응답으로 흘려보낸다. 다 보내고 스트림을 닫으면 파일을 지운다.
+     */
+    private static final class TempFileResource extends FileSystemResource {
+
+        private TempFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(getFile().toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+        }
+    }
+}
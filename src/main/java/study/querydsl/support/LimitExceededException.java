@@ -0,0 +1,15 @@
+package study.querydsl.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 동시 실행 한도를 넘은 요청은 대기열에 넣지 않고 429 로 바로 거절한다.
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class LimitExceededException extends RuntimeException {
+
+    public LimitExceededException(String message) {
+        super(message);
+    }
+}
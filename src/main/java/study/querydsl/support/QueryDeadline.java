@@ -0,0 +1,85 @@
+package study.querydsl.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.sql.AbstractSQLQuery;
+import com.querydsl.sql.StatementOptions;
+
+import javax.persistence.Query;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청 단위 쿼리 데드라인
+ * QueryDeadlineInterceptor 가 요청 스레드에 데드라인을 걸어두면,
+ * 쿼리를 만들 때 남은 시간을 javax.persistence.query.timeout 힌트로 넣어 JDBC statement 가 취소되게 한다.
+ */
+public final class QueryDeadline {
+
+    public static final String TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private QueryDeadline() {
+    }
+
+    public static void start(long timeoutMillis) {
+        DEADLINE.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    /**
+     * 다른 스레드로 데드라인을 넘길 때 사용 (restore 와 짝)
+     */
+    public static Long capture() {
+        return DEADLINE.get();
+    }
+
+    public static void restore(Long deadline) {
+        if (deadline == null) {
+            DEADLINE.remove();
+        } else {
+            DEADLINE.set(deadline);
+        }
+    }
+
+    public static void applyTo(JPAQuery<?> query) {
+        Integer timeout = timeoutHintMillis();
+        if (timeout != null) {
+            query.setHint(TIMEOUT_HINT, timeout);
+        }
+    }
+
+    public static void applyTo(Query query) {
+        Integer timeout = timeoutHintMillis();
+        if (timeout != null) {
+            query.setHint(TIMEOUT_HINT, timeout);
+        }
+    }
+
+    /**
+     * querydsl-sql 쿼리는 JDBC statement 타임아웃(초)으로 건다.
+     */
+    public static void applyTo(AbstractSQLQuery<?, ?> query) {
+        Integer timeout = timeoutHintMillis();
+        if (timeout != null) {
+            query.setStatementOptions(StatementOptions.builder()
+                    .setQueryTimeout(timeout / 1000)
+                    .build());
+        }
+    }
+
+    private static Integer timeoutHintMillis() {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return null;
+        }
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+            throw new DeadlineExceededException("요청 시간이 초과되어 쿼리를 실행하지 않습니다.");
+        }
+        // Hibernate 는 타임아웃을 초 단위로 반올림해서 JDBC 에 넘기므로 0초가 되지 않게 올림한다.
+        return (int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000 * 1000);
+    }
+}
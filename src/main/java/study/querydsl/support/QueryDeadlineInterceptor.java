@@ -0,0 +1,66 @@
+package study.querydsl.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 요청마다 쿼리 데드라인을 건다.
+ * X-Request-Timeout(ms) 헤더 > @QueryTimeout > member.query.timeout.default-ms 순서로 정하고,
+ * member.query.timeout.max-ms 보다 길게는 걸 수 없다.
+ */
+@Component
+public class QueryDeadlineInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final long defaultTimeoutMillis;
+    private final long maxTimeoutMillis;
+
+    public QueryDeadlineInterceptor(@Value("${member.query.timeout.default-ms:3000}") long defaultTimeoutMillis,
+                                    @Value("${member.query.timeout.max-ms:30000}") long maxTimeoutMillis) {
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        this.maxTimeoutMillis = maxTimeoutMillis;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryDeadline.start(Math.min(timeoutMillis(request, handler), maxTimeoutMillis));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryDeadline.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        QueryDeadline.clear();
+    }
+
+    private long timeoutMillis(HttpServletRequest request, Object handler) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header != null) {
+            try {
+                long timeout = Long.parseLong(header.trim());
+                if (timeout > 0) {
+                    return timeout;
+                }
+            } catch (NumberFormatException ignored) {
+                // 잘못된 헤더는 무시하고 기본값을 쓴다.
+            }
+        }
+        if (handler instanceof HandlerMethod) {
+            QueryTimeout queryTimeout = ((HandlerMethod) handler).getMethodAnnotation(QueryTimeout.class);
+            if (queryTimeout != null) {
+                return queryTimeout.millis();
+            }
+        }
+        return defaultTimeoutMillis;
+    }
+}
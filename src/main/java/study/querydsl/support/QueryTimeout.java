@@ -0,0 +1,16 @@
+package study.querydsl.support;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 엔드포인트별 기본 쿼리 타임아웃 (X-Request-Timeout 헤더가 없을 때 사용)
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryTimeout {
+
+    long millis();
+}
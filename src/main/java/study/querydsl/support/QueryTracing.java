@@ -0,0 +1,66 @@
+package study.querydsl.support;
+
+import com.querydsl.core.QueryResults;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * repository 쿼리 span
+ * 쿼리 모양(검색조건 중 값이 있는 필드)과 결과 row 수를 속성으로 남긴다.
+ * span 안에서 실행된 JDBC statement span 은 이 span 의 자식이 된다.
+ * 쿼리 모양은 같은 쿼리의 RepositoryQueryEvent(JFR) 에도 남는다.
+ */
+@Component
+public class QueryTracing {
+
+    public static final String QUERY_SHAPE = "query.shape";
+    public static final String ROW_COUNT = "db.row_count";
+    public static final String TOTAL_COUNT = "db.total_count";
+
+    private final Tracer tracer;
+
+    public QueryTracing(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer("study.querydsl");
+    }
+
+    public <T> List<T> fetch(String name, String shape, Supplier<List<T>> query) {
+        return trace(name, shape, query, (span, rows) -> span.setAttribute(ROW_COUNT, rows.size()));
+    }
+
+    public <T> QueryResults<T> fetchResults(String name, String shape, Supplier<QueryResults<T>> query) {
+        return trace(name, shape, query, (span, results) -> {
+            span.setAttribute(ROW_COUNT, results.getResults().size());
+            span.setAttribute(TOTAL_COUNT, results.getTotal());
+        });
+    }
+
+    public long count(String name, String shape, LongSupplier query) {
+        return trace(name, shape, query::getAsLong, (span, count) -> span.setAttribute(TOTAL_COUNT, count));
+    }
+
+    private <T> T trace(String name, String shape, Supplier<T> query, BiConsumer<Span, T> onResult) {
+        Span span = tracer.spanBuilder(name).setAttribute(QUERY_SHAPE, shape).startSpan();
+        Scope scope = span.makeCurrent();
+        try {
+            T result = RepositoryQueryEvents.withShape(shape, query);
+            onResult.accept(span, result);
+            return result;
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            scope.close();
+            span.end();
+        }
+    }
+}
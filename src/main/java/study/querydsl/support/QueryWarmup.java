@@ -0,0 +1,118 @@
+package study.querydsl.support;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 기동 시 쿼리 워밍업
+ * 검색조건 모양(값이 있는 조건 조합 16가지)마다 검색/페이지/count 쿼리를 한번씩 실행해서
+ * Hibernate 쿼리 플랜 캐시, Querydsl 직렬화, JIT 를 미리 데워둔다.
+ * ApplicationRunner 는 readiness 가 ACCEPTING_TRAFFIC 이 되기 전에 실행되므로 워밍업이 끝나야 트래픽을 받는다.
+ * 조회 결과가 없도록 조건 값을 주고, 읽기 전용 트랜잭션은 롤백한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryWarmup implements ApplicationRunner {
+
+    private static final String NO_MATCH = "__warmup__";
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int iterations;
+
+    public QueryWarmup(MemberJpaRepository memberJpaRepository,
+                       MemberRepository memberRepository,
+                       ObjectMapper objectMapper,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${member.warmup.iterations:3}") int iterations) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.memberRepository = memberRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Duration duration = warmUp();
+        log.info("query warm-up finished. iterations = {}, duration = {}ms", iterations, duration.toMillis());
+    }
+
+    public Duration warmUp() {
+        long startedAt = System.nanoTime();
+        List<MemberSearchCondition> conditions = allShapes();
+        for (int i = 0; i < iterations; i++) {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (MemberSearchCondition condition : conditions) {
+                    memberJpaRepository.search(condition, 1);
+                    memberRepository.searchPageSimple(condition, PageRequest.of(0, 1));
+                    memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+                    // 두번째 페이지가 비어있으면 count 쿼리가 실행된다.
+                    memberRepository.searchPageComplex(condition, PageRequest.of(1, 1));
+                }
+                status.setRollbackOnly();
+            });
+            serialize();
+        }
+        Duration duration = Duration.ofNanos(System.nanoTime() - startedAt);
+        meterRegistry.timer("member.warmup").record(duration);
+        return duration;
+    }
+
+    /**
+     * username, teamName, ageGoe, ageLoe 의 값 유무 조합
+     */
+    static List<MemberSearchCondition> allShapes() {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        for (int mask = 0; mask < 16; mask++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            if ((mask & 1) != 0) {
+                condition.setUsername(NO_MATCH);
+            }
+            if ((mask & 2) != 0) {
+                condition.setTeamName(NO_MATCH);
+            }
+            if ((mask & 4) != 0) {
+                condition.setAgeGoe(Integer.MAX_VALUE);
+            }
+            if ((mask & 8) != 0) {
+                condition.setAgeLoe(Integer.MIN_VALUE);
+            }
+            conditions.add(condition);
+        }
+        return conditions;
+    }
+
+    private void serialize() {
+        try {
+            objectMapper.writeValueAsString(List.of(new MemberTeamDto(1L, NO_MATCH, 0, 1L, NO_MATCH)));
+        } catch (JsonProcessingException e) {
+            log.warn("warm-up serialization failed", e);
+        }
+    }
+}
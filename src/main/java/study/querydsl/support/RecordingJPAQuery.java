@@ -0,0 +1,42 @@
+package study.querydsl.support;
+
+import com.querydsl.core.QueryResults;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * 실행할 때마다 RepositoryQueryEvent 를 남기는 JPAQuery (QueryDslConfig 의 JPAQueryFactory 가 만든다)
+ * select/where 등은 같은 인스턴스를 돌려주므로 끝까지 이 타입으로 실행된다.
+ */
+public class RecordingJPAQuery<T> extends JPAQuery<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    public RecordingJPAQuery(EntityManager em) {
+        super(em);
+    }
+
+    @Override
+    public List<T> fetch() {
+        return RepositoryQueryEvents.record(super::fetch, List::size, this::toString);
+    }
+
+    @Override
+    public T fetchOne() {
+        return RepositoryQueryEvents.record(super::fetchOne, result -> result != null ? 1 : 0, this::toString);
+    }
+
+    @Override
+    @Deprecated
+    public QueryResults<T> fetchResults() {
+        return RepositoryQueryEvents.record(super::fetchResults, results -> results.getResults().size(), this::toString);
+    }
+
+    @Override
+    @Deprecated
+    public long fetchCount() {
+        return RepositoryQueryEvents.record(super::fetchCount, count -> 1, this::toString);
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.support;
+
+import com.querydsl.core.QueryResults;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.SQLQuery;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 실행할 때마다 RepositoryQueryEvent 를 남기는 SQLQuery (QuerydslSqlConfig 의 SQLQueryFactory 가 만든다)
+ * RecordingJPAQuery 와 같고, jpqlHash 에는 SQL 의 hash 가 들어간다.
+ */
+public class RecordingSQLQuery<T> extends SQLQuery<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    public RecordingSQLQuery(Supplier<Connection> connection, Configuration configuration) {
+        super(connection, configuration);
+    }
+
+    @Override
+    public List<T> fetch() {
+        return RepositoryQueryEvents.record(super::fetch, List::size, this::toString);
+    }
+
+    @Override
+    public T fetchOne() {
+        return RepositoryQueryEvents.record(super::fetchOne, result -> result != null ? 1 : 0, this::toString);
+    }
+
+    @Override
+    @Deprecated
+    public QueryResults<T> fetchResults() {
+        return RepositoryQueryEvents.record(super::fetchResults, results -> results.getResults().size(), this::toString);
+    }
+
+    @Override
+    @Deprecated
+    public long fetchCount() {
+        return RepositoryQueryEvents.record(super::fetchCount, count -> 1, this::toString);
+    }
+}
@@ -0,0 +1,37 @@
+package study.querydsl.support;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * repository 쿼리 JFR 이벤트
+ * JFR 기록 중일 때만 남고, 같은 타임라인에서 GC/락 경합과 함께 볼 수 있다.
+ */
+@Name("study.querydsl.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Querydsl", "Repository"})
+@Description("MemberJpaRepository/MemberRepositoryImpl 쿼리 실행")
+@StackTrace(false)
+public class RepositoryQueryEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Shape")
+    @Description("값이 있는 검색조건 (MemberSearchCondition.shape)")
+    String shape;
+
+    @Label("JPQL Hash")
+    int jpqlHash;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Error")
+    @Description("쿼리가 예외로 끝났으면 예외 클래스, 아니면 null")
+    String error;
+}
@@ -0,0 +1,95 @@
+package study.querydsl.support;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * RepositoryQueryEvent 기록
+ * JFR 기록 중이 아니면 쿼리만 실행하고, 호출한 repository 메서드 찾기나 JPQL hash 계산은 하지 않는다.
+ * shape 는 QueryTracing 이 실행 중인 쿼리의 것을 쓴다.
+ */
+public final class RepositoryQueryEvents {
+
+    private static final String BASE_PACKAGE = "study.querydsl.";
+    private static final String SUPPORT_PACKAGE = "study.querydsl.support.";
+    private static final String CONFIG_PACKAGE = "study.querydsl.config.";
+
+    private static final ThreadLocal<String> SHAPE = new ThreadLocal<>();
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private RepositoryQueryEvents() {
+    }
+
+    /**
+     * 예외로 끝난 쿼리도 error 를 채워서 남긴다. (실패한 쿼리가 타임라인에서 빠지지 않게)
+     */
+    public static <T> T record(Supplier<T> query, ToLongFunction<T> rows, Supplier<String> jpql) {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        event.begin();
+        T result = null;
+        Throwable error = null;
+        try {
+            result = query.get();
+            return result;
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = callerMethod();
+                event.shape = Optional.ofNullable(SHAPE.get()).orElse("-");
+                event.jpqlHash = jpql.get().hashCode();
+                event.rows = error == null ? rows.applyAsLong(result) : 0;
+                event.error = error != null ? error.getClass().getName() : null;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * shape 를 걸어두고 query 를 실행한다. (QueryTracing 에서 사용)
+     */
+    static <T> T withShape(String shape, Supplier<T> query) {
+        String previous = SHAPE.get();
+        SHAPE.set(shape);
+        try {
+            return query.get();
+        } finally {
+            if (previous == null) {
+                SHAPE.remove();
+            } else {
+                SHAPE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * support/config 밖에서 쿼리를 실행한 첫 메서드. ex) MemberJpaRepository.findAllByIds
+     */
+    private static String callerMethod() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(BASE_PACKAGE)
+                        && !frame.getClassName().startsWith(SUPPORT_PACKAGE)
+                        && !frame.getClassName().startsWith(CONFIG_PACKAGE))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + methodName(frame.getMethodName()))
+                .orElse("unknown"));
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * 람다 안에서 실행됐으면 람다를 감싼 메서드 이름 (lambda$search$0 -> search)
+     */
+    private static String methodName(String methodName) {
+        if (methodName.startsWith("lambda$")) {
+            int end = methodName.indexOf('$', "lambda$".length());
+            return end > 0 ? methodName.substring("lambda$".length(), end) : methodName;
+        }
+        return methodName;
+    }
+}
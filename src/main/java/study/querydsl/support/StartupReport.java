@@ -0,0 +1,101 @@
+package study.querydsl.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 기동 시간 리포트
+ * 기동 단계별 시간과 생성이 오래 걸린 빈을 로그로 남기고, member.startup.budget-ms 를 넘으면 경고한다.
+ * 전체 기동 시간은 spring boot 의 application.ready.time 메트릭으로도 확인할 수 있다.
+ *
+ * member.startup.exit-after-start=true 면 기동 후 바로 종료한다. (build.gradle 의 cdsArchive training run 용)
+ */
+@Slf4j
+@Component
+public class StartupReport {
+
+    private static final String BEAN_INSTANTIATE_STEP = "spring.beans.instantiate";
+
+    private final long budgetMillis;
+    private final int topBeans;
+    private final boolean exitAfterStart;
+
+    public StartupReport(@Value("${member.startup.budget-ms:10000}") long budgetMillis,
+                         @Value("${member.startup.top-beans:10}") int topBeans,
+                         @Value("${member.startup.exit-after-start:false}") boolean exitAfterStart) {
+        this.budgetMillis = budgetMillis;
+        this.topBeans = topBeans;
+        this.exitAfterStart = exitAfterStart;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report(ApplicationReadyEvent event) {
+        Duration timeTaken = event.getTimeTaken();
+        ApplicationStartup applicationStartup = event.getApplicationContext().getApplicationStartup();
+        if (applicationStartup instanceof BufferingApplicationStartup) {
+            StartupTimeline timeline = ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline();
+            log.info("startup phases = {}", phases(timeline));
+            log.info("slowest beans = {}", slowestBeans(timeline));
+        }
+
+        if (timeTaken != null && timeTaken.toMillis() > budgetMillis) {
+            log.warn("startup took {}ms, over budget {}ms", timeTaken.toMillis(), budgetMillis);
+        } else {
+            log.info("startup took {}ms (budget {}ms)", timeTaken != null ? timeTaken.toMillis() : -1, budgetMillis);
+        }
+
+        if (exitAfterStart) {
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    /**
+     * 단계(step 이름)별 누적 시간(ms). 빈 생성은 slowestBeans 에서 따로 본다.
+     */
+    private Map<String, Long> phases(StartupTimeline timeline) {
+        Map<String, Long> phases = new TreeMap<>();
+        for (StartupTimeline.TimelineEvent event : timeline.getEvents()) {
+            String name = event.getStartupStep().getName();
+            if (!BEAN_INSTANTIATE_STEP.equals(name)) {
+                phases.merge(name, event.getDuration().toMillis(), Long::sum);
+            }
+        }
+        return phases;
+    }
+
+    /**
+     * 생성 시간(ms)이 긴 빈. 의존하는 빈 생성 시간도 포함된다.
+     */
+    private Map<String, Long> slowestBeans(StartupTimeline timeline) {
+        Map<String, Long> beans = new LinkedHashMap<>();
+        timeline.getEvents().stream()
+                .filter(event -> BEAN_INSTANTIATE_STEP.equals(event.getStartupStep().getName()))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(topBeans)
+                .forEach(event -> beans.put(beanName(event.getStartupStep()), event.getDuration().toMillis()));
+        return beans;
+    }
+
+    private String beanName(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if ("beanName".equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return step.getName();
+    }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 한 요청에 받을 수 있는 검색조건 수를 넘으면 400 으로 응답한다.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class TooManyConditionsException extends RuntimeException {
+
+    public TooManyConditionsException(String message) {
+        super(message);
+    }
+}
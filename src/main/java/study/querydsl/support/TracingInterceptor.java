@@ -0,0 +1,72 @@
+package study.querydsl.support;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 요청마다 컨트롤러 메서드 이름으로 span 을 만든다.
+ * afterCompletion 에서 끝내므로 응답 JSON 직렬화 시간까지 포함되고,
+ * 자식인 repository span 을 빼면 직렬화 등 나머지 시간을 알 수 있다.
+ */
+@Component
+public class TracingInterceptor implements HandlerInterceptor {
+
+    private static final String SPAN_ATTRIBUTE = TracingInterceptor.class.getName() + ".span";
+    private static final String SCOPE_ATTRIBUTE = TracingInterceptor.class.getName() + ".scope";
+
+    private final Tracer tracer;
+
+    public TracingInterceptor(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer("study.querydsl");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Span span = tracer.spanBuilder(spanName(request, handler))
+                .setSpanKind(SpanKind.SERVER)
+                .setAttribute("http.method", request.getMethod())
+                .setAttribute("http.target", request.getRequestURI())
+                .startSpan();
+        request.setAttribute(SPAN_ATTRIBUTE, span);
+        request.setAttribute(SCOPE_ATTRIBUTE, span.makeCurrent());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object scope = request.getAttribute(SCOPE_ATTRIBUTE);
+        if (scope instanceof Scope) {
+            ((Scope) scope).close();
+        }
+        Object span = request.getAttribute(SPAN_ATTRIBUTE);
+        if (span instanceof Span) {
+            Span requestSpan = (Span) span;
+            requestSpan.setAttribute("http.status_code", response.getStatus());
+            if (ex != null) {
+                requestSpan.recordException(ex);
+            }
+            if (ex != null || response.getStatus() >= 500) {
+                requestSpan.setStatus(StatusCode.ERROR);
+            }
+            requestSpan.end();
+        }
+    }
+
+    private String spanName(HttpServletRequest request, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            return handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        }
+        return request.getMethod() + " " + request.getRequestURI();
+    }
+}
@@ -0,0 +1,16 @@
+package study.querydsl.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * fields 파라미터에 조회할 수 없는 컬럼이 있으면 400 으로 응답한다.
+ * IllegalArgumentException 이면 repository 프록시가 InvalidDataAccessApiUsageException 으로 바꾸니 따로 둔다.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnsupportedFieldException extends RuntimeException {
+
+    public UnsupportedFieldException(String message) {
+        super(message);
+    }
+}
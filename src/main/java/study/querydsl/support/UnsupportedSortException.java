@@ -0,0 +1,16 @@
+package study.querydsl.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 인덱스로 정렬할 수 없는 sort 는 filesort 로 실행하지 않고 400 으로 거절한다.
+ * IllegalArgumentException 이면 repository 프록시가 InvalidDataAccessApiUsageException 으로 바꾸니 따로 둔다.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnsupportedSortException extends RuntimeException {
+
+    public UnsupportedSortException(String message) {
+        super(message);
+    }
+}
@@ -1,12 +1,26 @@
 package study.querydsl.entity;
 
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.PersistentAttributeInterceptable;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
 
 @SpringBootTest
 @Transactional
@@ -15,6 +29,12 @@ class MemberTest {
     @Autowired
     EntityManager em;
 
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @Test
     public void testEntity() {
         Team teamA = new Team("teamA");
@@ -43,4 +63,98 @@ class MemberTest {
             System.out.println("member.team = " + member.getTeam());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * build.gradle 의 hibernate enhance 설정이 적용됐는지 확인
+     */
+    @Test
+    public void bytecodeEnhanced() {
+        assertThat(SelfDirtinessTracker.class.isAssignableFrom(Member.class)).isTrue();
+        assertThat(SelfDirtinessTracker.class.isAssignableFrom(Team.class)).isTrue();
+        assertThat(PersistentAttributeInterceptable.class.isAssignableFrom(Member.class)).isTrue();
+    }
+
+    /**
+     * 회원이 많은 팀에 회원을 추가해도 team.members 컬렉션을 로딩하지 않는다.
+     */
+    @Test
+    public void addMemberWithoutLoadingMembers() {
+        Team team = new Team("bigTeam");
+        em.persist(team);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i, team));
+        }
+        em.flush();
+        em.clear();
+
+        Team findTeam = em.find(Team.class, team.getId());
+        for (int i = 100; i < 200; i++) {
+            em.persist(new Member("member" + i, i, findTeam));
+        }
+        Member moved = new Member("moved", 10, findTeam);
+        em.persist(moved);
+        moved.changeTeam(null);
+
+        assertThat(Hibernate.isInitialized(findTeam.getMembers())).isFalse();
+    }
+
+    /**
+     * 회원 수는 커밋할 때 반영되므로 트랜잭션을 직접 커밋하고 테스트 후 지운다.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void memberCountTest() throws InterruptedException {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] teamIds = tx.execute(status -> {
+            Team teamA = new Team("countTeamA");
+            Team teamB = new Team("countTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            return new Long[]{teamA.getId(), teamB.getId()};
+        });
+        try {
+            // 같은 팀에 동시에 추가해도 빠지는 증감이 없다.
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 40; i++) {
+                int age = i;
+                executor.execute(() -> tx.executeWithoutResult(status ->
+                        em.persist(new Member("count" + age, age, em.getReference(Team.class, teamIds[0])))));
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+            assertThat(memberCount(tx, teamIds[0])).isEqualTo(40);
+
+            // 팀 이동, 삭제
+            tx.executeWithoutResult(status -> {
+                List<Member> members = queryFactory.selectFrom(member)
+                        .where(member.username.in("count0", "count1", "count2"))
+                        .fetch();
+                members.get(0).changeTeam(em.getReference(Team.class, teamIds[1]));
+                members.get(1).changeTeam(null);
+                em.remove(members.get(2));
+            });
+            assertThat(memberCount(tx, teamIds[0])).isEqualTo(37);
+            assertThat(memberCount(tx, teamIds[1])).isEqualTo(1);
+
+            // bulk 연산은 다시 센다.
+            tx.executeWithoutResult(status -> queryFactory.delete(member)
+                    .where(member.username.in("count3", "count4"))
+                    .execute());
+            tx.executeWithoutResult(status -> queryFactory.update(member)
+                    .set(member.team, em.getReference(Team.class, teamIds[1]))
+                    .where(member.username.in("count5", "count6"))
+                    .execute());
+            assertThat(memberCount(tx, teamIds[0])).isEqualTo(33);
+            assertThat(memberCount(tx, teamIds[1])).isEqualTo(3);
+        } finally {
+            tx.executeWithoutResult(status -> {
+                queryFactory.delete(member).where(member.username.startsWith("count")).execute();
+                queryFactory.delete(team).where(team.id.in(teamIds)).execute();
+            });
+        }
+    }
+
+    private int memberCount(TransactionTemplate tx, Long teamId) {
+        return tx.execute(status -> em.find(Team.class, teamId).getMemberCount());
+    }
+}
@@ -0,0 +1,41 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class IdBlockAllocatorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    IdBlockAllocator idBlockAllocator;
+
+    @Test
+    public void reserveBlocks() {
+        List<IdBlock> blocks = idBlockAllocator.reserve(Member.class, 120);
+
+        assertThat(blocks).hasSize(3);
+        assertThat(blocks).allMatch(block -> block.getSize() == 50);
+        for (int i = 1; i < blocks.size(); i++) {
+            assertThat(blocks.get(i).getFirst()).isGreaterThan(blocks.get(i - 1).getLast());
+        }
+
+        // Hibernate 가 할당하는 id 는 예약된 블록과 겹치지 않는다.
+        for (int i = 0; i < 60; i++) {
+            Member member = new Member("member" + i, i);
+            em.persist(member);
+            assertThat(blocks).noneMatch(block -> block.contains(member.getId()));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * flush 는 별도 트랜잭션에서 실행되므로 데이터를 커밋하고 테스트 후 지운다.
+ * 주기 flush 가 끼어들지 않게 주기를 길게 잡는다.
+ */
+@SpringBootTest(properties = "member.age-buffer.flush-interval-ms=600000")
+class MemberAgeWriteBehindTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberAgeWriteBehind memberAgeWriteBehind;
+
+    @Autowired
+    TeamStatsRegistry teamStatsRegistry;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("buffer")).execute();
+            queryFactory.delete(team).where(team.name.eq("bufferTeam")).execute();
+        });
+    }
+
+    @Test
+    public void coalesceTest() throws InterruptedException {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] ids = tx.execute(status -> {
+            Member member1 = new Member("buffer1", 10);
+            Member member2 = new Member("buffer2", 20);
+            em.persist(member1);
+            em.persist(member2);
+            return new Long[]{member1.getId(), member2.getId()};
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> memberAgeWriteBehind.add(ids[0], 1));
+            executor.execute(() -> memberAgeWriteBehind.add(ids[1], 2));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(memberAgeWriteBehind.pendingMembers()).isEqualTo(2);
+        assertThat(memberAgeWriteBehind.flush()).isEqualTo(2);
+        assertThat(memberAgeWriteBehind.pendingMembers()).isZero();
+
+        assertThat(tx.<Integer>execute(status -> em.find(Member.class, ids[0]).getAge())).isEqualTo(1010);
+        assertThat(tx.<Integer>execute(status -> em.find(Member.class, ids[1]).getAge())).isEqualTo(2020);
+        assertThat(memberAgeWriteBehind.flush()).isZero();
+    }
+
+    /**
+     * overflow 나는 회원만 빼고 나머지는 반영한다. JDBC 로 update 해도 팀 통계는 맞춰진다.
+     */
+    @Test
+    public void dataErrorTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] ids = tx.execute(status -> {
+            Team bufferTeam = new Team("bufferTeam");
+            em.persist(bufferTeam);
+            Member member1 = new Member("buffer1", 10, bufferTeam);
+            Member member2 = new Member("buffer2", Integer.MAX_VALUE - 1, bufferTeam);
+            Member member3 = new Member("buffer3", 30, bufferTeam);
+            em.persist(member1);
+            em.persist(member2);
+            em.persist(member3);
+            return new Long[]{member1.getId(), member2.getId(), member3.getId(), bufferTeam.getId()};
+        });
+
+        memberAgeWriteBehind.add(ids[0], 5);
+        memberAgeWriteBehind.add(ids[1], 5);
+        memberAgeWriteBehind.add(ids[2], 5);
+
+        assertThat(memberAgeWriteBehind.flush()).isEqualTo(2);
+        // 실패한 회원은 다시 버퍼에 남는다.
+        assertThat(memberAgeWriteBehind.pendingMembers()).isEqualTo(1);
+
+        assertThat(tx.<Integer>execute(status -> em.find(Member.class, ids[0]).getAge())).isEqualTo(15);
+        assertThat(tx.<Integer>execute(status -> em.find(Member.class, ids[1]).getAge())).isEqualTo(Integer.MAX_VALUE - 1);
+        assertThat(tx.<Integer>execute(status -> em.find(Member.class, ids[2]).getAge())).isEqualTo(35);
+
+        TeamStatsDto stats = teamStatsRegistry.findByTeamId(ids[3]);
+        assertThat(stats.getAgeSum()).isEqualTo(15L + Integer.MAX_VALUE - 1 + 35);
+        assertThat(stats.getAgeMin()).isEqualTo(15);
+
+        tx.executeWithoutResult(status -> queryFactory.delete(member).where(member.id.eq(ids[1])).execute());
+        assertThat(memberAgeWriteBehind.flush()).isZero();
+        assertThat(memberAgeWriteBehind.pendingMembers()).isZero();
+    }
+}
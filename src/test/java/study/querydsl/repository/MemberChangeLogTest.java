@@ -0,0 +1,175 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberChangeDto;
+import study.querydsl.dto.MemberChangesDto;
+import study.querydsl.entity.Member;
+import study.querydsl.support.DataVersion;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+class MemberChangeLogTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberChangeLog memberChangeLog;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    DataVersion dataVersion;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                queryFactory.delete(member).where(member.username.startsWith("change")).execute());
+    }
+
+    @Test
+    public void changesSinceTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long since = memberChangeLog.currentVersion();
+
+        Long[] ids = tx.execute(status -> {
+            Member member1 = new Member("change1", 10);
+            Member member2 = new Member("change2", 20);
+            em.persist(member1);
+            em.persist(member2);
+            return new Long[]{member1.getId(), member2.getId()};
+        });
+        tx.executeWithoutResult(status -> em.find(Member.class, ids[0]).setAge(11));
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, ids[1])));
+
+        MemberChangesDto result = memberChangeLog.changesSince(since, 100);
+
+        // 회원마다 마지막 변경만 남는다.
+        assertThat(result.isResync()).isFalse();
+        assertThat(result.isHasMore()).isFalse();
+        assertThat(result.getChanges()).extracting("memberId").containsExactly(ids[0], ids[1]);
+
+        MemberChangeDto upsert = result.getChanges().get(0);
+        assertThat(upsert.isDeleted()).isFalse();
+        assertThat(upsert.getMember().getAge()).isEqualTo(11);
+
+        MemberChangeDto tombstone = result.getChanges().get(1);
+        assertThat(tombstone.isDeleted()).isTrue();
+        assertThat(tombstone.getMember()).isNull();
+
+        assertThat(result.getNext()).isEqualTo(memberChangeLog.currentVersion());
+        assertThat(memberChangeLog.changesSince(result.getNext(), 100).getChanges()).isEmpty();
+    }
+
+    @Test
+    public void limitTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long since = memberChangeLog.currentVersion();
+        tx.executeWithoutResult(status -> em.persist(new Member("change1", 10)));
+        tx.executeWithoutResult(status -> em.persist(new Member("change2", 20)));
+        tx.executeWithoutResult(status -> em.persist(new Member("change3", 30)));
+
+        MemberChangesDto first = memberChangeLog.changesSince(since, 2);
+        MemberChangesDto second = memberChangeLog.changesSince(first.getNext(), 2);
+
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(first.getChanges()).extracting("member.username").containsExactly("change1", "change2");
+        assertThat(second.isHasMore()).isFalse();
+        assertThat(second.getChanges()).extracting("member.username").containsExactly("change3");
+    }
+
+    @Test
+    public void limitSingleVersionTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long since = memberChangeLog.currentVersion();
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("change1", 10));
+            em.persist(new Member("change2", 20));
+            em.persist(new Member("change3", 30));
+        });
+        tx.executeWithoutResult(status -> em.persist(new Member("change4", 40)));
+
+        // 한 트랜잭션의 변경은 limit 보다 많아도 나누지 않는다.
+        MemberChangesDto first = memberChangeLog.changesSince(since, 2);
+        MemberChangesDto second = memberChangeLog.changesSince(first.getNext(), 2);
+
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(first.getChanges()).extracting("member.username").containsExactly("change1", "change2", "change3");
+        assertThat(second.isHasMore()).isFalse();
+        assertThat(second.getChanges()).extracting("member.username").containsExactly("change4");
+    }
+
+    @Test
+    public void bulkUpdateTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("change1", 10));
+            em.persist(new Member("change2", 20));
+        });
+        long since = memberChangeLog.currentVersion();
+
+        tx.executeWithoutResult(status -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.username.startsWith("change"))
+                .execute());
+
+        MemberChangesDto result = memberChangeLog.changesSince(since, 100);
+        assertThat(result.getChanges()).extracting("member.age").containsExactlyInAnyOrder(11, 21);
+    }
+
+    @Test
+    public void rollbackTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long since = memberChangeLog.currentVersion();
+
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("change1", 10));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        // 롤백된 변경은 남지 않는다.
+        assertThat(memberChangeLog.currentVersion()).isEqualTo(since);
+        assertThat(memberChangeLog.changesSince(since, 100).getChanges()).isEmpty();
+    }
+
+    @Test
+    public void compactionTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        // 같은 DB 를 읽는 다른 노드. tombstone 은 retention 0 이라 읽을 때 바로 지워진다.
+        MemberChangeLog changeLog = new MemberChangeLog(em, memberJpaRepository, dataVersion, transactionManager, 0);
+        Long id = tx.execute(status -> {
+            Member member1 = new Member("change1", 10);
+            em.persist(member1);
+            return member1.getId();
+        });
+        long since = changeLog.currentVersion();
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, id)));
+
+        assertThat(changeLog.changesSince(since, 100).isResync()).isTrue();
+        MemberChangesDto latest = changeLog.changesSince(changeLog.currentVersion(), 100);
+        assertThat(latest.isResync()).isFalse();
+        assertThat(latest.getChanges()).isEmpty();
+        // 처음 since 나 앞선 버전도 resync
+        assertThat(changeLog.changesSince(0, 100).isResync()).isTrue();
+        assertThat(changeLog.changesSince(changeLog.currentVersion() + 1, 100).isResync()).isTrue();
+    }
+}
@@ -0,0 +1,99 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.IngestResultDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * chunk 마다 커밋하므로 테스트 후 지운다.
+ */
+@SpringBootTest(properties = {"member.ingest.chunk-size=2", "member.ingest.max-line-length=1000"})
+class MemberIngestorTest {
+
+    @Autowired
+    MemberIngestor memberIngestor;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("ingest")).execute();
+            queryFactory.delete(team).where(team.name.eq("ingestTeam")).execute();
+        });
+    }
+
+    @Test
+    public void ingestTest() throws Exception {
+        String body = "{\"username\":\"ingest1\",\"age\":10,\"teamName\":\"ingestTeam\"}\n"
+                + "{\"username\":\"ingest2\",\"age\":20,\"teamName\":\"ingestTeam\"}\n"
+                + "\n"
+                + "{\"username\":\"ingest3\",\"age\":30}\n"
+                + "{not json}\n"
+                + "{\"age\":40}\n";
+
+        IngestResultDto result = memberIngestor.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getSucceeded()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getChunks()).extracting("succeeded").containsExactly(2, 1, 0);
+        assertThat(result.getChunks()).extracting("failed").containsExactly(0, 1, 1);
+        assertThat(result.getChunks().get(1).getError()).startsWith("line 5");
+        assertThat(result.getChunks().get(2).getFirstLine()).isEqualTo(6);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("ingestTeam");
+        List<MemberTeamDto> members = memberJpaRepository.search(condition);
+        assertThat(members).extracting("username").containsExactlyInAnyOrder("ingest1", "ingest2");
+        // 팀은 한번만 만들어진다.
+        assertThat(queryFactory.selectFrom(team).where(team.name.eq("ingestTeam")).fetch()).hasSize(1);
+    }
+
+    @Test
+    public void tooLongLineTest() throws Exception {
+        String body = "{\"username\":\"ingest1\",\"age\":10,\"teamName\":\"" + "a".repeat(2000) + "\"}\r\n"
+                + "{\"username\":\"ingest2\",\"age\":20}\r\n";
+
+        IngestResultDto result = memberIngestor.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getSucceeded()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getChunks().get(0).getError()).startsWith("line 1");
+        assertThat(memberJpaRepository.findByUsername("ingest2")).hasSize(1);
+    }
+
+    @Test
+    public void rollbackErrorTest() throws Exception {
+        // username 컬럼 길이를 넘어서 chunk 가 롤백된다.
+        String body = "{not json}\n"
+                + "{\"username\":\"ingest" + "a".repeat(300) + "\",\"age\":10}\n";
+
+        IngestResultDto result = memberIngestor.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getSucceeded()).isZero();
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getChunks().get(0).getError()).doesNotStartWith("line 1");
+    }
+}
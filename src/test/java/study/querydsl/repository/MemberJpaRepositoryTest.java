@@ -10,6 +10,7 @@ import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -76,4 +77,71 @@ class MemberJpaRepositoryTest {
 
         List<MemberTeamDto> result = memberJpaRepository.searchByBuilder(condition);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void findByUsernameIgnoreCaseTest() {
+        memberJpaRepository.save(new Member("Member1", 10));
+        memberJpaRepository.save(new Member("member2", 20));
+        em.flush();
+        em.clear();
+
+        List<Member> result = memberJpaRepository.findByUsernameIgnoreCase("MEMBER1");
+
+        assertThat(result.size()).isEqualTo(1);
+        assertThat(result.get(0).getUsername()).isEqualTo("Member1");
+        assertThat(result.get(0).getUsernameLower()).isEqualTo("member1");
+    }
+
+    @Test
+    public void usernameLowerSyncOnUpdateTest() {
+        Member member = new Member("member1", 10);
+        memberJpaRepository.save(member);
+        em.flush();
+
+        member.setUsername("RENAMED");
+        em.flush();
+        em.clear();
+
+        assertThat(memberJpaRepository.findByUsernameIgnoreCase("renamed").size()).isEqualTo(1);
+        assertThat(memberJpaRepository.findByUsernameIgnoreCase("member1").size()).isEqualTo(0);
+    }
+
+    @Test
+    public void findAllByIdsTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            Member member = new Member("member" + i, i, teamA);
+            memberJpaRepository.save(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+
+        // 중복 id 와 null 은 무시, 600 개는 512 + 88(128 로 패딩) 두 번에 나눠 조회
+        ids.add(ids.get(0));
+        ids.add(null);
+
+        List<Member> members = memberJpaRepository.findAllByIds(ids);
+        List<MemberTeamDto> dtos = memberJpaRepository.findAllTeamDtoByIds(ids);
+
+        assertThat(members.size()).isEqualTo(600);
+        assertThat(dtos.size()).isEqualTo(600);
+        assertThat(dtos.get(0).getTeamName()).isEqualTo("teamA");
+    }
+
+    @Test
+    public void searchWithLimitTest() {
+        for (int i = 0; i < 10; i++) {
+            memberJpaRepository.save(new Member("member" + i, i));
+        }
+
+        List<MemberTeamDto> result = memberJpaRepository.search(new MemberSearchCondition(), 4);
+
+        assertThat(result.size()).isEqualTo(4);
+        assertThat(result.get(0).getUsername()).isEqualTo("member0");
+        assertThat(result.get(3).getUsername()).isEqualTo("member3");
+    }
+}
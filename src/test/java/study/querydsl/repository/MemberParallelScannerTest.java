@@ -0,0 +1,90 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.*;
+/**
+ * 파티션마다 별도 EntityManager 로 조회하므로 데이터를 커밋하고 테스트 후 지운다.
+ */
+@SpringBootTest
+class MemberParallelScannerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberParallelScanner memberParallelScanner;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void saveMembers() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Team scanTeam = new Team("scanTeam");
+            em.persist(scanTeam);
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("scan" + i, i, i % 2 == 0 ? scanTeam : null));
+            }
+        });
+    }
+
+    @AfterEach
+    public void deleteMembers() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'scan%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name = 'scanTeam'").executeUpdate();
+        });
+    }
+
+    @Test
+    public void forEachScansEveryMemberOnce() {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        long count = memberParallelScanner.forEach(4, row -> {
+            if (row.getUsername().startsWith("scan")) {
+                assertThat(ids.add(row.getMemberId())).isTrue();
+            }
+        });
+
+        assertThat(ids).hasSize(100);
+        assertThat(count).isGreaterThanOrEqualTo(100);
+    }
+
+    @Test
+    public void exportCsvPerPartition(@TempDir Path directory) throws Exception {
+        List<Path> files = memberParallelScanner.exportCsv(3, directory);
+
+        assertThat(files).hasSize(3);
+        long rows = 0;
+        for (Path file : files) {
+            List<String> lines = Files.readAllLines(file);
+            assertThat(lines.get(0)).isEqualTo("memberId,username,age,teamId,teamName");
+            rows += lines.stream().filter(line -> line.contains(",scan")).count();
+        }
+        assertThat(rows).isEqualTo(100);
+    }
+
+    @Test
+    public void invalidPartitions() {
+        // @Repository 라 예외 변환 프록시가 InvalidDataAccessApiUsageException 으로 감싼다.
+        assertThatThrownBy(() -> memberParallelScanner.forEach(0, row -> {
+        })).hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -5,14 +5,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.support.UnsupportedFieldException;
+import study.querydsl.support.UnsupportedSortException;
 
 import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -91,4 +95,112 @@ class MemberRepositoryTest {
         assertThat(result.getSize()).isEqualTo(3);
         assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
+
+    @Test
+    public void searchBatchTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition teamBCondition = new MemberSearchCondition();
+        teamBCondition.setTeamName("teamB");
+
+        MemberSearchCondition ageCondition = new MemberSearchCondition();
+        ageCondition.setAgeGoe(20);
+        ageCondition.setAgeLoe(30);
+
+        MemberSearchCondition emptyCondition = new MemberSearchCondition();
+
+        List<List<MemberTeamDto>> result = memberRepository.searchBatch(List.of(teamBCondition, ageCondition), 100);
+
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0)).extracting("username").containsExactlyInAnyOrder("member3", "member4");
+        assertThat(result.get(1)).extracting("username").containsExactlyInAnyOrder("member2", "member3");
+
+        List<List<MemberTeamDto>> withEmpty = memberRepository.searchBatch(List.of(ageCondition, emptyCondition), 100);
+
+        assertThat(withEmpty.get(0)).hasSize(2);
+        assertThat(withEmpty.get(1)).hasSize(4);
+
+        // 빈 조건이 있어도 member_id 순으로 limit 개 row 까지만 조회한다.
+        List<List<MemberTeamDto>> limited = memberRepository.searchBatch(List.of(ageCondition, emptyCondition), 2);
+
+        assertThat(limited.get(0)).extracting("username").containsExactly("member2");
+        assertThat(limited.get(1)).extracting("username").containsExactly("member1", "member2");
+    }
+
+    @Test
+    public void searchFieldsTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        List<Map<String, Object>> result = memberRepository.searchFields(condition, List.of("username", "teamId"), 100);
+
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0)).containsOnlyKeys("username", "teamId");
+        assertThat(result).extracting(row -> row.get("username")).containsExactlyInAnyOrder("member2", "member3");
+
+        condition.setTeamName("teamB");
+        Page<Map<String, Object>> page = memberRepository.searchPageFields(condition, List.of("teamName"), PageRequest.of(0, 10));
+
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getContent().get(0)).containsEntry("teamName", "teamB");
+
+        assertThatThrownBy(() -> memberRepository.searchFields(condition, List.of("password"), 100))
+                .isInstanceOf(UnsupportedFieldException.class);
+    }
+
+    @Test
+    public void searchPageSortTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 20, teamB);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 10, teamA);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        // 같은 나이는 memberId 로 순서가 고정된다.
+        Page<MemberTeamDto> byAgeDesc = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "age")));
+        assertThat(byAgeDesc.getContent()).extracting(MemberTeamDto::getUsername).containsExactly("member2", "member1", "member3");
+
+        Page<MemberTeamDto> byUsername = memberRepository.searchPageSimple(condition, PageRequest.of(0, 2, Sort.by("username", "memberId")));
+        assertThat(byUsername.getContent()).extracting(MemberTeamDto::getUsername).containsExactly("member1", "member2");
+        assertThat(byUsername.getTotalElements()).isEqualTo(3);
+
+        Page<Map<String, Object>> fields = memberRepository.searchPageFields(condition, List.of("username"), PageRequest.of(0, 10, Sort.by("username").descending()));
+        assertThat(fields.getContent()).extracting(row -> row.get("username")).containsExactly("member3", "member2", "member1");
+
+        // 인덱스가 없는 정렬은 거절한다.
+        assertThatThrownBy(() -> memberRepository.searchPageComplex(condition, PageRequest.of(0, 10, Sort.by("usernameLower"))))
+                .isInstanceOf(UnsupportedSortException.class);
+        assertThatThrownBy(() -> memberRepository.searchPageSimple(condition, PageRequest.of(0, 10, Sort.by("teamName"))))
+                .isInstanceOf(UnsupportedSortException.class);
+        assertThatThrownBy(() -> memberRepository.searchPageComplex(condition, PageRequest.of(0, 10, Sort.by("age", "username"))))
+                .isInstanceOf(UnsupportedSortException.class);
+        assertThatThrownBy(() -> memberRepository.searchPageComplex(condition, PageRequest.of(0, 10,
+                Sort.by(Sort.Order.asc("age"), Sort.Order.desc("memberId")))))
+                .isInstanceOf(UnsupportedSortException.class);
+    }
 }
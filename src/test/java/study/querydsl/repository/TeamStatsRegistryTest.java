@@ -0,0 +1,167 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+class TeamStatsRegistryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamStatsRegistry teamStatsRegistry;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    @Transactional
+    public void rebuildTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+        em.flush();
+
+        teamStatsRegistry.rebuild();
+        TeamStatsDto stats = teamStatsRegistry.findByTeamId(teamA.getId());
+
+        assertThat(stats.getMemberCount()).isEqualTo(3);
+        assertThat(stats.getAgeSum()).isEqualTo(60);
+        assertThat(stats.getAgeMin()).isEqualTo(10);
+        assertThat(stats.getAgeMax()).isEqualTo(30);
+        assertThat(stats.getAgeAvg()).isEqualTo(20.0);
+
+        List<MemberTeamDto> result = memberJpaRepository.findOlderThanTeamAverage();
+        assertThat(result).extracting("username").containsExactly("member3");
+    }
+
+    @Test
+    @Transactional
+    public void bulkMoveTeamTest() {
+        Team teamA = new Team("moveTeamA");
+        Team teamB = new Team("moveTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("moveMember1", 10, teamA));
+        em.persist(new Member("moveMember2", 20, teamA));
+        em.persist(new Member("moveMember3", 30, teamB));
+        em.flush();
+
+        // 원래 팀(teamA)과 옮겨간 팀(teamB)만 다시 센다.
+        queryFactory
+                .update(member)
+                .set(member.team, teamB)
+                .where(member.username.eq("moveMember1"))
+                .execute();
+
+        TeamStatsDto statsA = teamStatsRegistry.findByTeamId(teamA.getId());
+        assertThat(statsA.getMemberCount()).isEqualTo(1);
+        assertThat(statsA.getAgeSum()).isEqualTo(20);
+        assertThat(statsA.getAgeMin()).isEqualTo(20);
+
+        TeamStatsDto statsB = teamStatsRegistry.findByTeamId(teamB.getId());
+        assertThat(statsB.getMemberCount()).isEqualTo(2);
+        assertThat(statsB.getAgeSum()).isEqualTo(40);
+        assertThat(statsB.getAgeMin()).isEqualTo(10);
+        assertThat(statsB.getAgeMax()).isEqualTo(30);
+    }
+
+    /**
+     * 커밋된 변경만 통계에 반영되는지 확인하려고 트랜잭션을 직접 커밋한다.
+     */
+    @Test
+    public void incrementalUpdateTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        Long teamId = tx.execute(status -> {
+            Team team = new Team("statsTeam");
+            em.persist(team);
+            em.persist(new Member("statsMember1", 10, team));
+            em.persist(new Member("statsMember2", 40, team));
+            return team.getId();
+        });
+
+        try {
+            TeamStatsDto inserted = teamStatsRegistry.findByTeamId(teamId);
+            assertThat(inserted.getMemberCount()).isEqualTo(2);
+            assertThat(inserted.getAgeSum()).isEqualTo(50);
+            assertThat(inserted.getAgeMin()).isEqualTo(10);
+            assertThat(inserted.getAgeMax()).isEqualTo(40);
+            assertThat(memberJpaRepository.findOlderThanTeamAverage())
+                    .extracting("username")
+                    .contains("statsMember2")
+                    .doesNotContain("statsMember1");
+
+            tx.executeWithoutResult(status ->
+                    memberJpaRepository.findByUsername("statsMember2").get(0).setAge(20));
+
+            TeamStatsDto updated = teamStatsRegistry.findByTeamId(teamId);
+            assertThat(updated.getMemberCount()).isEqualTo(2);
+            assertThat(updated.getAgeSum()).isEqualTo(30);
+            assertThat(updated.getAgeMax()).isEqualTo(20);
+
+            // 롤백된 변경은 반영되지 않는다.
+            tx.executeWithoutResult(status -> {
+                memberJpaRepository.findByUsername("statsMember1").get(0).setAge(50);
+                em.flush();
+                status.setRollbackOnly();
+            });
+
+            assertThat(teamStatsRegistry.findByTeamId(teamId).getAgeSum()).isEqualTo(30);
+
+            // bulk update 는 대상 팀을 다시 센다.
+            tx.executeWithoutResult(status -> queryFactory
+                    .update(member)
+                    .set(member.age, member.age.add(5))
+                    .where(member.username.startsWith("statsMember"))
+                    .execute());
+
+            TeamStatsDto bulkUpdated = teamStatsRegistry.findByTeamId(teamId);
+            assertThat(bulkUpdated.getAgeSum()).isEqualTo(40);
+            assertThat(bulkUpdated.getAgeMin()).isEqualTo(15);
+            assertThat(bulkUpdated.getAgeMax()).isEqualTo(25);
+
+            // min 이었던 회원이 빠지면 min 을 다시 구한다.
+            tx.executeWithoutResult(status ->
+                    memberJpaRepository.findByUsername("statsMember1").forEach(em::remove));
+
+            TeamStatsDto removed = teamStatsRegistry.findByTeamId(teamId);
+            assertThat(removed.getMemberCount()).isEqualTo(1);
+            assertThat(removed.getAgeSum()).isEqualTo(25);
+            assertThat(removed.getAgeMin()).isEqualTo(25);
+            assertThat(removed.getAgeMax()).isEqualTo(25);
+        } finally {
+            tx.executeWithoutResult(status -> {
+                memberJpaRepository.findByUsername("statsMember1").forEach(em::remove);
+                memberJpaRepository.findByUsername("statsMember2").forEach(em::remove);
+                em.remove(em.find(Team.class, teamId));
+            });
+        }
+
+        assertThat(teamStatsRegistry.findByTeamId(teamId)).isNull();
+    }
+}
@@ -0,0 +1,96 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberRepositoryImpl;
+import study.querydsl.support.QueryTracing;
+import study.querydsl.support.TimedBenchmark;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * JPA(JPQL) 검색과 querydsl-sql 검색의 호출당 시간/할당 비교 (같은 JVM, 같은 데이터)
+ * ./gradlew test -Pbenchmark=true --tests '*BenchmarkTest'
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+// SQL 로그는 JPA 쪽에만 찍혀서 비교가 틀어지므로 끈다.
+@SpringBootTest(properties = {"member.repository.backend=sql", "logging.level.org.hibernate.SQL=info"})
+@Transactional
+class SqlMemberRepositoryBenchmarkTest {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    QueryTracing queryTracing;
+
+    // 같은 context 에서 비교하려고 sql 로 위임하지 않는 JPA 구현을 직접 만든다.
+    MemberRepositoryImpl jpaRepository;
+
+    @BeforeEach
+    public void before() {
+        jpaRepository = new MemberRepositoryImpl(queryFactory, queryTracing,
+                new StaticListableBeanFactory().getBeanProvider(SqlMemberRepository.class));
+
+        Team benchTeamA = new Team("benchTeamA");
+        Team benchTeamB = new Team("benchTeamB");
+        em.persist(benchTeamA);
+        em.persist(benchTeamB);
+        for (int i = 0; i < 1000; i++) {
+            em.persist(new Member("benchMember" + i, i % 100, i % 2 == 0 ? benchTeamA : benchTeamB));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    /**
+     * 500 row 를 DTO 로 조회
+     */
+    @Test
+    public void search() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("benchTeamA");
+        assertThat(memberRepository.search(condition)).hasSameSizeAs(jpaRepository.search(condition));
+
+        TimedBenchmark.run("jpa search (500 rows)", WARMUP / 10, ITERATIONS / 10, () -> jpaRepository.search(condition));
+        TimedBenchmark.run("sql search (500 rows)", WARMUP / 10, ITERATIONS / 10, () -> memberRepository.search(condition));
+    }
+
+    /**
+     * 20 row 페이지 + count. 쿼리를 만들고 실행하는 고정 비용 비교
+     */
+    @Test
+    public void searchPage() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("benchTeamB");
+        condition.setAgeGoe(10);
+        PageRequest pageable = PageRequest.of(1, 20);
+        assertThat(memberRepository.searchPageComplex(condition, pageable).getContent())
+                .isEqualTo(jpaRepository.searchPageComplex(condition, pageable).getContent());
+
+        TimedBenchmark.run("jpa searchPageComplex (20 rows)", WARMUP, ITERATIONS, () -> jpaRepository.searchPageComplex(condition, pageable));
+        TimedBenchmark.run("sql searchPageComplex (20 rows)", WARMUP, ITERATIONS, () -> memberRepository.searchPageComplex(condition, pageable));
+    }
+}
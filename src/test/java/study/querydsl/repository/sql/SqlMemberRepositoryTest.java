@@ -0,0 +1,134 @@
+package study.querydsl.repository.sql;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.support.RepositoryQueryEvent;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * querydsl-sql 구현이 JPA 구현과 같은 결과를 내는지 비교한다.
+ */
+@SpringBootTest(properties = "member.repository.backend=sql")
+@Transactional
+class SqlMemberRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        // flush 하지 않아도 JPA 처럼 조회된다. (QuerydslSqlConfig)
+        em.persist(new Member("member5", 50));
+    }
+
+    @Test
+    public void searchTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setTeamName("teamB");
+
+        List<MemberTeamDto> result = memberRepository.search(condition);
+
+        assertThat(result).containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(condition));
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("member3", "member4");
+    }
+
+    @Test
+    public void searchPageTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 3));
+
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getTotalElements()).isEqualTo(memberJpaRepository.search(condition).size());
+    }
+
+    @Test
+    public void searchBatchTest() {
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+        MemberSearchCondition young = new MemberSearchCondition();
+        young.setAgeLoe(10);
+
+        List<List<MemberTeamDto>> result = memberRepository.searchBatch(List.of(teamB, young), 1000);
+
+        assertThat(result.get(0)).containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(teamB));
+        assertThat(result.get(1)).containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(young));
+    }
+
+    @Test
+    public void searchFieldsTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member5");
+
+        List<Map<String, Object>> result = memberRepository.searchFields(condition, List.of("username", "teamName"), 10);
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0)).containsEntry("username", "member5").containsEntry("teamName", null);
+    }
+
+    @Test
+    public void repositoryQueryEventTest() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member5");
+
+        List<RecordedEvent> events;
+        Path file = Files.createTempFile("repository-query-", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(RepositoryQueryEvent.class);
+            recording.start();
+
+            memberRepository.search(condition);
+
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        RecordedEvent search = events.stream()
+                .filter(event -> event.getEventType().getName().equals("study.querydsl.RepositoryQuery"))
+                .filter(event -> "SqlMemberRepository.search".equals(event.getString("method")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("이벤트가 없습니다."));
+        assertThat(search.getLong("rows")).isEqualTo(1);
+        assertThat(search.getString("shape")).isEqualTo("username");
+    }
+}
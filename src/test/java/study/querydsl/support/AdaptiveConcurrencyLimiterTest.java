@@ -0,0 +1,58 @@
+package study.querydsl.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    @Test
+    public void rejectOverLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 500, 0.5);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getInflight()).isEqualTo(2);
+
+        limiter.release(FAST, false);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void decreaseOnSlowOrDropped() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 10, 500, 0.5);
+
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        limiter.tryAcquire();
+        limiter.release(FAST, true);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW, false);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    public void increaseWhenFastAndUtilized() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 3, 500, 0.5);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.tryAcquire();
+            limiter.release(FAST, false);
+            limiter.release(FAST, false);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+}
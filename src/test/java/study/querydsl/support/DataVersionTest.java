@@ -0,0 +1,100 @@
+package study.querydsl.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+class DataVersionTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    DataVersion dataVersion;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("version")).execute();
+            queryFactory.delete(team).where(team.name.eq("versionTeam")).execute();
+        });
+    }
+
+    @Test
+    public void bumpAfterCommitTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long before = dataVersion.current();
+
+        tx.executeWithoutResult(status -> {
+            Team versionTeam = new Team("versionTeam");
+            em.persist(versionTeam);
+            em.persist(new Member("version1", 10, versionTeam));
+            em.persist(new Member("version2", 20, versionTeam));
+            em.flush();
+            // 커밋 전에는 그대로
+            assertThat(dataVersion.current()).isEqualTo(before);
+        });
+
+        // 트랜잭션당 한번만 올라간다.
+        assertThat(dataVersion.current()).isEqualTo(before + 1);
+    }
+
+    @Test
+    public void noBumpOnRollbackTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long before = dataVersion.current();
+
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("version1", 10));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(dataVersion.current()).isEqualTo(before);
+    }
+
+    @Test
+    public void bumpOnBulkUpdateTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> em.persist(new Member("version1", 10)));
+        long before = dataVersion.current();
+
+        tx.executeWithoutResult(status -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.username.eq("version1"))
+                .execute());
+
+        assertThat(dataVersion.current()).isEqualTo(before + 1);
+    }
+
+    @Test
+    public void sharedAcrossNodesTest() {
+        // 같은 DB 를 쓰는 다른 노드
+        DataVersion otherNode = new DataVersion(em, transactionManager);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> em.persist(new Member("version1", 10)));
+
+        assertThat(otherNode.current()).isEqualTo(dataVersion.current());
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DbBulkheadTest {
+
+    @Test
+    public void rejectWhenSaturated() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DbBulkhead bulkhead = new DbBulkhead(meterRegistry, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            CompletableFuture<String> running = bulkhead.submit(() -> {
+                await(release);
+                return "running";
+            });
+            CompletableFuture<String> queued = bulkhead.submit(() -> "queued");
+
+            // 스레드 1개 + 대기열 1개가 모두 찼으니 바로 거절
+            assertThatThrownBy(() -> bulkhead.submit(() -> "rejected"))
+                    .isInstanceOf(BulkheadFullException.class);
+            assertThat(meterRegistry.counter("db.bulkhead.rejected").count()).isEqualTo(1.0);
+
+            release.countDown();
+            assertThat(running.get(1, TimeUnit.SECONDS)).isEqualTo("running");
+            assertThat(queued.get(1, TimeUnit.SECONDS)).isEqualTo("queued");
+            assertThat(meterRegistry.timer("db.bulkhead.execution").count()).isEqualTo(2);
+        } finally {
+            release.countDown();
+            bulkhead.destroy();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
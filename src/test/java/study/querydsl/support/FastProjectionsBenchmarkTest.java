@@ -0,0 +1,74 @@
+package study.querydsl.support;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.UserDto;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * FastProjections 와 Projections 의 row 변환(newInstance) 속도 비교
+ * DB 조회 없이 querydsl 이 row 마다 호출하는 newInstance 만 잰다.
+ * ./gradlew test -Pbenchmark=true --tests '*BenchmarkTest'
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FastProjectionsBenchmarkTest {
+
+    private static final int ROWS = 10_000;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 500;
+
+    private static final Object[][] ROW_VALUES = new Object[ROWS][];
+
+    static {
+        for (int i = 0; i < ROWS; i++) {
+            ROW_VALUES[i] = new Object[]{"member" + i, i % 100};
+        }
+    }
+
+    @Test
+    public void bean() {
+        compare("bean",
+                Projections.bean(MemberDto.class, member.username, member.age),
+                FastProjections.bean(MemberDto.class, member.username, member.age));
+    }
+
+    @Test
+    public void fields() {
+        compare("fields",
+                Projections.fields(UserDto.class, member.username.as("name"), member.age),
+                FastProjections.fields(UserDto.class, member.username.as("name"), member.age));
+    }
+
+    @Test
+    public void constructor() {
+        compare("constructor",
+                Projections.constructor(MemberDto.class, member.username, member.age),
+                FastProjections.constructor(MemberDto.class, member.username, member.age));
+    }
+
+    private <T> void compare(String name, FactoryExpression<T> projections, FactoryExpression<T> fastProjections) {
+        assertThat(fastProjections.newInstance(ROW_VALUES[1])).isEqualTo(projections.newInstance(ROW_VALUES[1]));
+
+        TimedBenchmark base = TimedBenchmark.run("Projections." + name, WARMUP, ITERATIONS, () -> project(projections));
+        TimedBenchmark fast = TimedBenchmark.run("FastProjections." + name, WARMUP, ITERATIONS, () -> project(fastProjections));
+        System.out.printf("%s rows/sec: Projections %,.0f, FastProjections %,.0f (x%.2f)%n", name,
+                rowsPerSecond(base), rowsPerSecond(fast), base.getAvgNanos() / fast.getAvgNanos());
+    }
+
+    private static Object project(FactoryExpression<?> projection) {
+        Object last = null;
+        for (Object[] row : ROW_VALUES) {
+            last = projection.newInstance(row);
+        }
+        return last;
+    }
+
+    private static double rowsPerSecond(TimedBenchmark result) {
+        return ROWS / (result.getAvgNanos() / 1_000_000_000);
+    }
+}
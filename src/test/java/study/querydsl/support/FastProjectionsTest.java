@@ -0,0 +1,94 @@
+package study.querydsl.support;
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.UserDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+class FastProjectionsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    // 다른 테스트가 커밋한 회원과 섞이지 않게 이 팀의 회원만 조회한다.
+    Team projectionTeam;
+
+    @BeforeEach
+    public void before() {
+        projectionTeam = new Team("projectionTeam");
+        em.persist(projectionTeam);
+        em.persist(new Member("member1", 10, projectionTeam));
+        em.persist(new Member("member2", 20, projectionTeam));
+        em.persist(new Member(null, 30, projectionTeam));
+    }
+
+    @Test
+    public void beanTest() {
+        List<MemberDto> result = queryFactory
+                .select(FastProjections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .where(member.team.eq(projectionTeam))
+                .orderBy(member.age.asc())
+                .fetch();
+
+        List<MemberDto> expected = queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .where(member.team.eq(projectionTeam))
+                .orderBy(member.age.asc())
+                .fetch();
+
+        assertThat(result).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void fieldsWithAliasTest() {
+        List<UserDto> result = queryFactory
+                .select(FastProjections.fields(UserDto.class, member.username.as("name"), member.age))
+                .from(member)
+                .where(member.team.eq(projectionTeam), member.username.eq("member1"))
+                .fetch();
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getName()).isEqualTo("member1");
+        assertThat(result.get(0).getAge()).isEqualTo(10);
+    }
+
+    @Test
+    public void constructorTest() {
+        List<MemberDto> result = queryFactory
+                .select(FastProjections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .where(member.team.eq(projectionTeam))
+                .orderBy(member.age.asc())
+                .fetch();
+
+        // null 값도 생성자에는 그대로 넘어간다.
+        assertThat(result).extracting("username").containsExactly("member1", "member2", null);
+        assertThat(result).extracting("age").containsExactly(10, 20, 30);
+    }
+
+    @Test
+    public void unknownPropertyTest() {
+        assertThatThrownBy(() -> FastProjections.bean(UserDto.class, member.username))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,52 @@
+package study.querydsl.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class QueryDeadlineTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @AfterEach
+    public void clearDeadline() {
+        QueryDeadline.clear();
+    }
+
+    @Test
+    public void queryWithinDeadline() {
+        em.persist(new Member("deadlineMember1", 10));
+
+        QueryDeadline.start(5000);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("deadlineMember1");
+        assertThat(memberJpaRepository.search(condition)).hasSize(1);
+        assertThat(memberJpaRepository.findByUsername("deadlineMember1")).hasSize(1);
+    }
+
+    @Test
+    public void expiredDeadlineSkipsQuery() {
+        QueryDeadline.start(0);
+
+        assertThatThrownBy(() -> memberJpaRepository.search(new MemberSearchCondition()))
+                .isInstanceOf(DeadlineExceededException.class);
+        assertThatThrownBy(() -> memberJpaRepository.findAll())
+                .isInstanceOf(DeadlineExceededException.class);
+    }
+}
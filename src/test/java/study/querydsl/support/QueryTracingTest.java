@@ -0,0 +1,87 @@
+package study.querydsl.support;
+
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class QueryTracingTest {
+
+    @TestConfiguration
+    static class InMemoryExporterConfig {
+        @Bean
+        @Primary
+        InMemorySpanExporter inMemorySpanExporter() {
+            return InMemorySpanExporter.create();
+        }
+    }
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    InMemorySpanExporter spanExporter;
+
+    @Autowired
+    OpenTelemetrySdk openTelemetry;
+
+    @Test
+    public void searchPageComplexSpans() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 4; i++) {
+            em.persist(new Member("member" + i, 10 * i, teamA));
+        }
+        em.flush();
+        openTelemetry.getSdkTracerProvider().forceFlush().join(10, TimeUnit.SECONDS);
+        spanExporter.reset();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+        // BatchSpanProcessor 가 모아둔 span 을 내보낸다.
+        openTelemetry.getSdkTracerProvider().forceFlush().join(10, TimeUnit.SECONDS);
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        SpanData content = findSpan(spans, "MemberRepository.searchPageComplex.content");
+        SpanData count = findSpan(spans, "MemberRepository.searchPageComplex.count");
+
+        assertThat(content.getAttributes().asMap())
+                .containsValue("teamName")
+                .containsValue(2L);
+        assertThat(count.getAttributes().asMap()).containsValue(4L);
+
+        // content/count 쿼리 span 아래에 JDBC statement span 이 생긴다.
+        assertThat(spans).anyMatch(span -> span.getParentSpanId().equals(content.getSpanId()));
+        assertThat(spans).anyMatch(span -> span.getParentSpanId().equals(count.getSpanId()));
+    }
+
+    private SpanData findSpan(List<SpanData> spans, String name) {
+        return spans.stream()
+                .filter(span -> span.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("span 이 없습니다. name = " + name));
+    }
+}
@@ -0,0 +1,40 @@
+package study.querydsl.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class QueryWarmupTest {
+
+    @Autowired
+    QueryWarmup queryWarmup;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void allShapes() {
+        List<MemberSearchCondition> conditions = QueryWarmup.allShapes();
+
+        assertThat(conditions).hasSize(16);
+        assertThat(conditions).extracting(MemberSearchCondition::shape).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void warmUpDoesNotChangeData() {
+        long before = memberRepository.count();
+
+        Duration duration = queryWarmup.warmUp();
+
+        assertThat(duration).isPositive();
+        assertThat(memberRepository.count()).isEqualTo(before);
+    }
+}
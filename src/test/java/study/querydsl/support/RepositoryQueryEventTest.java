@@ -0,0 +1,106 @@
+package study.querydsl.support;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class RepositoryQueryEventTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void repositoryQueryEvents() throws Exception {
+        // 다른 테스트가 커밋한 회원과 겹치지 않는 팀/회원 이름을 쓴다.
+        Team eventTeam = new Team("eventTeam");
+        em.persist(eventTeam);
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member("eventMember" + i, 10 * i, eventTeam));
+        }
+        em.flush();
+
+        List<RecordedEvent> events;
+        Path file = Files.createTempFile("repository-query-", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(RepositoryQueryEvent.class);
+            recording.start();
+
+            memberJpaRepository.findByUsername("eventMember1");
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("eventTeam");
+            memberRepository.search(condition);
+
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        RecordedEvent findByUsername = findEvent(events, "MemberJpaRepository.findByUsername");
+        assertThat(findByUsername.getLong("rows")).isEqualTo(1);
+        assertThat(findByUsername.getString("shape")).isEqualTo("-");
+
+        RecordedEvent search = findEvent(events, "MemberRepositoryImpl.search");
+        assertThat(search.getLong("rows")).isEqualTo(3);
+        assertThat(search.getString("shape")).contains("teamName");
+        assertThat(search.getInt("jpqlHash")).isNotZero();
+    }
+
+    @Test
+    public void failedQueryEvent() throws Exception {
+        List<RecordedEvent> events;
+        Path file = Files.createTempFile("repository-query-", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(RepositoryQueryEvent.class);
+            recording.start();
+
+            assertThatThrownBy(() -> RepositoryQueryEvents.<List<Member>>record(() -> {
+                throw new IllegalStateException("query failed");
+            }, List::size, () -> "select member"))
+                    .isInstanceOf(IllegalStateException.class);
+
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        RecordedEvent failed = findEvent(events, "unknown");
+        assertThat(failed.getString("error")).isEqualTo(IllegalStateException.class.getName());
+        assertThat(failed.getLong("rows")).isZero();
+    }
+
+    private RecordedEvent findEvent(List<RecordedEvent> events, String method) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals("study.querydsl.RepositoryQuery"))
+                .filter(event -> method.equals(event.getString("method")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("이벤트가 없습니다. method = " + method));
+    }
+}
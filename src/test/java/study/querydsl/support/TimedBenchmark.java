@@ -0,0 +1,67 @@
+package study.querydsl.support;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * JMH 없이 같은 JVM 에서 구현을 나란히 비교하는 간단한 시간/할당 측정
+ * warmup 후 iterations 번 실행해서 호출당 평균/p50/p99 시간과 현재 스레드의 호출당 할당 바이트를 잰다.
+ * 결과는 참고용이라 테스트에서 속도를 assert 하지 않는다. (-Dbenchmark=true 일 때만 실행)
+ */
+public final class TimedBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final String name;
+    private final double avgNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final double bytesPerOp;
+
+    private TimedBenchmark(String name, double avgNanos, long p50Nanos, long p99Nanos, double bytesPerOp) {
+        this.name = name;
+        this.avgNanos = avgNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.bytesPerOp = bytesPerOp;
+    }
+
+    public static TimedBenchmark run(String name, int warmup, int iterations, Supplier<?> operation) {
+        for (int i = 0; i < warmup; i++) {
+            operation.get();
+        }
+        long threadId = Thread.currentThread().getId();
+        long[] nanos = new long[iterations];
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            long startedAt = System.nanoTime();
+            operation.get();
+            nanos[i] = System.nanoTime() - startedAt;
+        }
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        double avg = Arrays.stream(nanos).average().orElse(0);
+        Arrays.sort(nanos);
+        TimedBenchmark result = new TimedBenchmark(name, avg,
+                nanos[iterations / 2], nanos[Math.min(iterations - 1, iterations * 99 / 100)],
+                (double) allocated / iterations);
+        System.out.println(result);
+        return result;
+    }
+
+    public double getAvgNanos() {
+        return avgNanos;
+    }
+
+    public double getBytesPerOp() {
+        return bytesPerOp;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-40s avg %8.1fus  p50 %8.1fus  p99 %8.1fus  alloc %10.0f B/op",
+                name, avgNanos / 1000, p50Nanos / 1000.0, p99Nanos / 1000.0, bytesPerOp);
+    }
+}